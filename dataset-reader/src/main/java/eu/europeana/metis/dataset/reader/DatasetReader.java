@@ -0,0 +1,123 @@
+package eu.europeana.metis.dataset.reader;
+
+import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.bson.types.ObjectId;
+import org.mongodb.morphia.query.FindOptions;
+import org.mongodb.morphia.query.Query;
+
+/**
+ * Reads all datasets, or all datasets of an organization, in order of their ID. Every batch
+ * continues after the ID of the last dataset of the previous batch, so that each batch costs the
+ * same regardless of how many datasets were already read (unlike skipping to a page). Every batch
+ * is requested through a {@link BatchRequester}, so that a failed batch can be retried from that
+ * same ID.
+ */
+public class DatasetReader implements Iterator<Dataset> {
+
+  private static final String ID_FIELD = "_id";
+  private static final String ORGANIZATION_ID_FIELD = "organizationId";
+
+  private final MorphiaDatastoreProvider datastoreProvider;
+  private final String organizationId;
+  private final int batchSize;
+  private final BatchRequester batchRequester;
+
+  private ObjectId lastId;
+  private Iterator<Dataset> currentBatch;
+  private boolean lastBatchRead = false;
+
+  /**
+   * Constructor.
+   *
+   * @param datastoreProvider the datastore provider.
+   * @param organizationId the organization of which to read the datasets. Can be null, in which
+   * case the datasets of all organizations are read.
+   * @param batchSize the number of datasets to request at the same time.
+   * @param startAfterId the ID after which to start reading. Can be null, in which case all
+   * datasets are read.
+   * @param batchRequester executes the request of a batch, for instance with retries.
+   */
+  public DatasetReader(MorphiaDatastoreProvider datastoreProvider, String organizationId,
+      int batchSize, ObjectId startAfterId, BatchRequester batchRequester) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive.");
+    }
+    this.datastoreProvider = datastoreProvider;
+    this.organizationId = organizationId;
+    this.batchSize = batchSize;
+    this.lastId = startAfterId;
+    this.batchRequester = batchRequester;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while ((currentBatch == null || !currentBatch.hasNext()) && !lastBatchRead) {
+      final List<Dataset> batch = readNextBatch();
+      lastBatchRead = batch.size() < batchSize;
+      currentBatch = batch.iterator();
+    }
+    return currentBatch.hasNext();
+  }
+
+  @Override
+  public Dataset next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Dataset dataset = currentBatch.next();
+    lastId = dataset.getId();
+    return dataset;
+  }
+
+  /**
+   * @return the ID of the last dataset returned. Can be used to resume reading later.
+   */
+  public ObjectId getLastId() {
+    return lastId;
+  }
+
+  /**
+   * @return the remaining datasets as a (sequential) stream.
+   */
+  public Stream<Dataset> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+  }
+
+  private List<Dataset> readNextBatch() {
+    final ObjectId startAfterId = lastId;
+    return batchRequester.request(() -> {
+      final Query<Dataset> query = datastoreProvider.getDatastore().createQuery(Dataset.class);
+      if (organizationId != null) {
+        query.field(ORGANIZATION_ID_FIELD).equal(organizationId);
+      }
+      if (startAfterId != null) {
+        query.field(ID_FIELD).greaterThan(startAfterId);
+      }
+      query.order(ID_FIELD);
+      return query.asList(new FindOptions().limit(batchSize));
+    });
+  }
+
+  /**
+   * Executes the request of a batch of datasets.
+   */
+  @FunctionalInterface
+  public interface BatchRequester {
+
+    /**
+     * @param batchRequest the request of the batch.
+     * @return the batch.
+     */
+    List<Dataset> request(Supplier<List<Dataset>> batchRequest);
+  }
+}
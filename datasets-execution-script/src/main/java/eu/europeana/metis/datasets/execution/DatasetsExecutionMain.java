@@ -2,7 +2,11 @@ package eu.europeana.metis.datasets.execution;
 
 import eu.europeana.metis.core.dao.DatasetDao;
 import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import eu.europeana.metis.dataset.reader.DatasetReader;
 import eu.europeana.metis.datasets.execution.utilities.ExecutorManager;
+import eu.europeana.metis.datasets.execution.utilities.ExtendedWorkflowExecutionDao;
+import eu.europeana.metis.datasets.execution.utilities.ExternalRequestUtilMigration;
+import eu.europeana.metis.datasets.execution.utilities.ExternalService;
 import eu.europeana.metis.datasets.execution.utilities.MongoInitializer;
 import eu.europeana.metis.datasets.execution.utilities.PropertiesHolder;
 import eu.europeana.metis.utils.CustomTruststoreAppender;
@@ -36,8 +40,16 @@ public class DatasetsExecutionMain {
     MorphiaDatastoreProvider morphiaDatastoreProvider = new MorphiaDatastoreProvider(
         mongoInitializer.getMongoClient(), propertiesHolder.mongoDb);
     DatasetDao datasetDaoOriginal = new DatasetDao(morphiaDatastoreProvider, null);
-    ExecutorManager executorManager = new ExecutorManager(propertiesHolder, datasetDaoOriginal);
+    ExtendedWorkflowExecutionDao workflowExecutionDao = new ExtendedWorkflowExecutionDao(
+        morphiaDatastoreProvider);
+    DatasetReader datasetReader = new DatasetReader(morphiaDatastoreProvider,
+        propertiesHolder.organizationId, propertiesHolder.datasetsPerRequest,
+        propertiesHolder.startAfterDatasetId, batchRequest -> ExternalRequestUtilMigration
+        .retryableExternalRequest(ExternalService.MONGO, batchRequest));
+    ExecutorManager executorManager = new ExecutorManager(propertiesHolder, datasetDaoOriginal,
+        datasetReader, workflowExecutionDao);
     executorManager.startExecutions();
+    ExternalRequestUtilMigration.logStatistics();
 
     mongoInitializer.close();
   }
@@ -0,0 +1,130 @@
+package eu.europeana.metis.datasets.execution.utilities;
+
+import eu.europeana.metis.authentication.user.MetisUser;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Caches the access token of the metis user and sends authenticated requests to metis core.
+ * <p>Metis authentication expires a token after it has not been used for a while, so the token
+ * is renewed when it has been idle for longer than its validity minus a safety margin. If a
+ * request is still rejected as unauthorized the token is renewed once and the request is
+ * replayed.</p>
+ */
+public class AuthenticationTokenManager {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationTokenManager.class);
+  public static final String AUTHORIZATION = "Authorization";
+  private static final long REFRESH_MARGIN_IN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final RestTemplate restTemplate;
+  private final String loginUserUrl;
+  private final String basicAuthorization;
+  private final long tokenValidityInMillis;
+
+  private String accessToken;
+  private long lastUsedTimestamp;
+  private int numberOfLogins = 0;
+
+  public AuthenticationTokenManager(RestTemplate restTemplate, String loginUserUrl,
+      String username, String password, int tokenValidityInMins) {
+    if (TimeUnit.MINUTES.toMillis(tokenValidityInMins) <= REFRESH_MARGIN_IN_MILLIS) {
+      throw new IllegalArgumentException(String.format("The access token validity (%d minutes) "
+              + "must be longer than the refresh margin (%d minutes).", tokenValidityInMins,
+          TimeUnit.MILLISECONDS.toMinutes(REFRESH_MARGIN_IN_MILLIS)));
+    }
+    this.restTemplate = restTemplate;
+    this.loginUserUrl = loginUserUrl;
+    this.basicAuthorization = "Basic " + new String(Base64.getEncoder()
+        .encode((username + ":" + password).getBytes(StandardCharsets.UTF_8)),
+        StandardCharsets.UTF_8);
+    this.tokenValidityInMillis = TimeUnit.MINUTES.toMillis(tokenValidityInMins);
+  }
+
+  /**
+   * Executes a request against metis core with a valid access token. The request is retried
+   * through {@link ExternalRequestUtilMigration} and, if rejected with a 401, replayed once with a
+   * fresh token.
+   *
+   * @param request the request, receiving the headers containing the authorization
+   * @param <R> the type of the result
+   * @return the result of the request
+   */
+  public <R> R executeAuthenticated(Function<HttpHeaders, R> request) {
+    String usedAccessToken = getAccessToken();
+    try {
+      return executeWithAccessToken(request, usedAccessToken);
+    } catch (HttpClientErrorException e) {
+      if (e.getStatusCode() != HttpStatus.UNAUTHORIZED) {
+        throw e;
+      }
+      LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+          "Access token was rejected, requesting a new one and replaying the request");
+      invalidateAccessToken(usedAccessToken);
+      return executeWithAccessToken(request, getAccessToken());
+    }
+  }
+
+  /**
+   * @return the number of times a login was performed to get an access token
+   */
+  public synchronized int getNumberOfLogins() {
+    return numberOfLogins;
+  }
+
+  private <R> R executeWithAccessToken(Function<HttpHeaders, R> request, String accessToken) {
+    HttpHeaders accessTokenHeader = new HttpHeaders();
+    accessTokenHeader.set(AUTHORIZATION, "Bearer " + accessToken);
+    final R result = ExternalRequestUtilMigration
+        .retryableExternalRequest(ExternalService.METIS_CORE,
+            () -> request.apply(accessTokenHeader));
+    markAccessTokenUsed(accessToken);
+    return result;
+  }
+
+  private synchronized String getAccessToken() {
+    if (accessToken == null
+        || System.currentTimeMillis() - lastUsedTimestamp
+        > tokenValidityInMillis - REFRESH_MARGIN_IN_MILLIS) {
+      accessToken = loginAndGetAuthorizationToken();
+      lastUsedTimestamp = System.currentTimeMillis();
+      numberOfLogins++;
+    }
+    return accessToken;
+  }
+
+  private synchronized void markAccessTokenUsed(String usedAccessToken) {
+    if (usedAccessToken.equals(accessToken)) {
+      lastUsedTimestamp = System.currentTimeMillis();
+    }
+  }
+
+  private synchronized void invalidateAccessToken(String usedAccessToken) {
+    //Another request could have already replaced the token
+    if (usedAccessToken.equals(accessToken)) {
+      accessToken = null;
+    }
+  }
+
+  private String loginAndGetAuthorizationToken() {
+    UriComponentsBuilder authenticationBuilder = UriComponentsBuilder.fromUriString(loginUserUrl);
+    HttpHeaders authenticationHttpHeaders = new HttpHeaders();
+    authenticationHttpHeaders.set(AUTHORIZATION, basicAuthorization);
+
+    MetisUser metisUser = ExternalRequestUtilMigration
+        .retryableExternalRequest(ExternalService.METIS_CORE, () -> restTemplate
+            .postForObject(authenticationBuilder.build().toUri().toString(),
+                new HttpEntity<>(null, authenticationHttpHeaders), MetisUser.class));
+    return metisUser.getMetisUserAccessToken().getAccessToken();
+  }
+}
@@ -1,31 +1,26 @@
 package eu.europeana.metis.datasets.execution.utilities;
 
 import eu.europeana.metis.RestEndpoints;
-import eu.europeana.metis.authentication.user.MetisUser;
 import eu.europeana.metis.core.dao.DatasetDao;
 import eu.europeana.metis.core.dataset.Dataset;
-import eu.europeana.metis.core.rest.ResponseListWrapper;
 import eu.europeana.metis.core.workflow.WorkflowExecution;
 import eu.europeana.metis.core.workflow.WorkflowStatus;
 import eu.europeana.metis.core.workflow.plugins.AbstractMetisPlugin;
+import eu.europeana.metis.dataset.reader.DatasetReader;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.Marker;
 import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -41,31 +36,38 @@ import org.springframework.web.util.UriComponentsBuilder;
 public class ExecutorManager {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorManager.class);
-  private static final String NEXT_PAGE_WITH_DATASET_LIST_SIZE_TEMPLATE = "NextPage: {}, with dataset list size: {}";
+  private static final String READ_DATASETS_TEMPLATE = "Datasets read: {}, last dataset _id: {}";
   private static final String PREFIX_OF_PROCESSED_DATASET_FILE = "/home/jochen/migration/datasets-execution/logs/processed-datasets-";
   private static final String LOG_FILE_EXTENSION = ".log";
   public static final int DURATION_OF_NO_RECORD_CHANGE_IN_MINS = 30;
-  private final Marker processedDatasetsMarker;
   private final String pathToProcessedDatasetsFile;
-  public static final String AUTHORIZATION = "Authorization";
   private final PropertiesHolder propertiesHolder;
   private final DatasetDao datasetDao;
-  private final String loginUserUrl;
+  private final DatasetReader datasetReader;
+  private final WorkflowExecutionPoller workflowExecutionPoller;
+  private final AuthenticationTokenManager authenticationTokenManager;
   private final String startDatasetExecutionUrl;
   private final String getWorkflowExecutionUrl;
   private final String cancelWorkflowExecutionUrl;
   private final RestTemplate restTemplate = new RestTemplate();
-  private String accessToken;
-  private List<String> processedDatasetIds = new ArrayList<>();
+  private ProcessedDatasetStore processedDatasetStore;
+  private final List<RunningExecution> runningExecutions = new ArrayList<>();
   private long totalExpectedRecords = 0;
   private long totalProcessedRecords = 0;
   private long totalErrorRecords = 0;
 
-  public ExecutorManager(PropertiesHolder propertiesHolder, DatasetDao datasetDao) {
+  public ExecutorManager(PropertiesHolder propertiesHolder, DatasetDao datasetDao,
+      DatasetReader datasetReader, ExtendedWorkflowExecutionDao workflowExecutionDao) {
     this.propertiesHolder = propertiesHolder;
     this.datasetDao = datasetDao;
-    loginUserUrl = this.propertiesHolder.metisAuthenticationHost
-        + RestEndpoints.AUTHENTICATION_LOGIN;
+    this.datasetReader = datasetReader;
+    this.workflowExecutionPoller = new WorkflowExecutionPoller(
+        propertiesHolder.monitorThroughDatabase ? workflowExecutionDao : null,
+        this::monitorWorkflowExecution);
+    authenticationTokenManager = new AuthenticationTokenManager(restTemplate,
+        this.propertiesHolder.metisAuthenticationHost + RestEndpoints.AUTHENTICATION_LOGIN,
+        propertiesHolder.metisUsername, propertiesHolder.metisPassword,
+        propertiesHolder.metisAccessTokenValidityInMins);
     startDatasetExecutionUrl = this.propertiesHolder.metisCoreHost
         + RestEndpoints.ORCHESTRATOR_WORKFLOWS_DATASETID_EXECUTE;
     getWorkflowExecutionUrl = this.propertiesHolder.metisCoreHost
@@ -79,119 +81,177 @@ public class ExecutorManager {
             + LOG_FILE_EXTENSION;
     switch (propertiesHolder.suffixOfProcessedDatasetsLogFile) {
       case "harvesting":
-        processedDatasetsMarker = PropertiesHolder.PROCESSED_DATASETS_HARVESTING;
-        break;
       case "preview":
-        processedDatasetsMarker = PropertiesHolder.PROCESSED_DATASETS_PREVIEW;
-        break;
       case "publish":
-        processedDatasetsMarker = PropertiesHolder.PROCESSED_DATASETS_PUBLISH;
         break;
       default:
-        processedDatasetsMarker = null;
         throw new IllegalArgumentException(String
             .format("Wrong log file suffix %s", propertiesHolder.suffixOfProcessedDatasetsLogFile));
     }
   }
 
   public void startExecutions() throws InterruptedException, IOException {
-    initializeProcessedDatasetList(); //Read file that contains dataset ids that are already processed from previous executions
-    int nextPage = 0;
-    int processedDatasetsCounter = 0;
-    do {
-      //Read pages from database
-      ResponseListWrapper<Dataset> responseListWrapper = new ResponseListWrapper<>();
-      responseListWrapper.setResultsAndLastPage(
-          datasetDao.getAllDatasetsByOrganizationId(propertiesHolder.organizationId, nextPage),
-          datasetDao.getDatasetsPerRequest(), nextPage);
-      LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
-          NEXT_PAGE_WITH_DATASET_LIST_SIZE_TEMPLATE, nextPage, responseListWrapper.getListSize());
-      nextPage = responseListWrapper.getNextPage();
+    //Read file that contains dataset ids that are already processed from previous executions
+    try (ProcessedDatasetStore store = new ProcessedDatasetStore(
+        Paths.get(pathToProcessedDatasetsFile))) {
+      processedDatasetStore = store;
+      if (processedDatasetStore.size() > 0) {
+        LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+            "Using Processed datasets file: {}. There are {} datasets that will be bypassed.",
+            pathToProcessedDatasetsFile, processedDatasetStore.size());
+      }
+      executeDatasets();
+    } finally {
+      processedDatasetStore = null;
+    }
+  }
 
-      for (Dataset dataset : responseListWrapper.getResults()) {
-        if (!processedDatasetIds.contains(dataset.getDatasetId())) {
-          handleDatasetExecution(dataset);
-          processedDatasetsCounter++;
-          LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "ProcessedDatasetsCounter: {}",
-              processedDatasetsCounter);
-        }
-        if (processedDatasetsCounter >= propertiesHolder.numberOfDatasetsToProcess) {
-          break;
-        }
+  private void executeDatasets() throws InterruptedException {
+    int processedDatasetsCounter = 0;
+    int readDatasetsCounter = 0;
+    while (datasetReader.hasNext()
+        && processedDatasetsCounter < propertiesHolder.numberOfDatasetsToProcess) {
+      final Dataset dataset = datasetReader.next();
+      readDatasetsCounter++;
+      if (readDatasetsCounter % propertiesHolder.datasetsPerRequest == 0) {
+        LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, READ_DATASETS_TEMPLATE,
+            readDatasetsCounter, datasetReader.getLastId());
       }
-    } while (nextPage != -1
-        && processedDatasetsCounter < propertiesHolder.numberOfDatasetsToProcess);
+      if (!processedDatasetStore.contains(dataset.getDatasetId())) {
+        waitForExecutionSlot();
+        startDatasetExecution(dataset);
+        processedDatasetsCounter++;
+        LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "ProcessedDatasetsCounter: {}",
+            processedDatasetsCounter);
+      }
+    }
+    waitForAllExecutionsToEnd();
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
         "Total totalExpectedRecords: {}. Total totalProcessedRecords: {}. Total totalErrorRecords: {}.",
         totalExpectedRecords, totalProcessedRecords, totalErrorRecords);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Number of logins to metis: {}",
+        authenticationTokenManager.getNumberOfLogins());
   }
 
-  private void initializeProcessedDatasetList() throws IOException {
-    try (Stream<String> stream = Files
-        .lines(Paths.get(pathToProcessedDatasetsFile), StandardCharsets.UTF_8)) {
-      stream.forEach(line -> processedDatasetIds.add(line));
-      if (!processedDatasetIds.isEmpty()) {
-        LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
-            "Using Processed datasets file: {}. There are {} datasets that will be bypassed.",
-            pathToProcessedDatasetsFile, processedDatasetIds.size());
-      }
+  private void markDatasetAsProcessed(String datasetId) {
+    try {
+      processedDatasetStore.add(datasetId);
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          String.format("Could not store processed datasetId %s", datasetId), e);
     }
   }
 
-  private void handleDatasetExecution(Dataset dataset) throws InterruptedException {
+  private void startDatasetExecution(Dataset dataset) {
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Starting datasetId {} execution.",
         dataset.getDatasetId());
     WorkflowExecution workflowExecution = sendDatasetForExecution(dataset.getDatasetId());
     if (workflowExecution == null) {
-      LOGGER.info(processedDatasetsMarker,
-          dataset.getDatasetId()); //Gets appended and is not timestamp based
+      markDatasetAsProcessed(dataset.getDatasetId());
       LOGGER.info(PropertiesHolder.FINAL_DATASET_STATUS,
           "FAILED DATASET datasetId: {}",
           dataset.getDatasetId());//Log only the status of the end result
       return;
     }
     dataset.setEcloudDatasetId(
-        ExternalRequestUtilMigration.retryableExternalRequest(
+        ExternalRequestUtilMigration.retryableExternalRequest(ExternalService.MONGO,
             () -> datasetDao.getDatasetByDatasetId(dataset.getDatasetId())).getEcloudDatasetId());
-    int previousProcessedRecords = 0;
-    int processedRecords;
-    final long periodOfNoRecordCountChangeInSeconds = TimeUnit.MINUTES.toSeconds(
+    runningExecutions.add(new RunningExecution(dataset, workflowExecution));
+  }
+
+  /**
+   * Blocks until a new execution can be started. That is when the number of running executions is
+   * below the configured maximum and the running executions together expect fewer records than the
+   * configured maximum. One execution is always allowed, regardless of its size.
+   */
+  private void waitForExecutionSlot() throws InterruptedException {
+    while (!canStartExecution()) {
+      monitorRunningExecutions();
+      if (!canStartExecution()) {
+        sleepForMonitorInterval();
+      }
+    }
+  }
+
+  private boolean canStartExecution() {
+    if (runningExecutions.isEmpty()) {
+      return true;
+    }
+    final long expectedRecordsInFlight = runningExecutions.stream()
+        .mapToLong(RunningExecution::getExpectedRecords).sum();
+    return runningExecutions.size() < propertiesHolder.maxConcurrentExecutions
+        && expectedRecordsInFlight < propertiesHolder.maxExpectedRecordsInFlight;
+  }
+
+  private void waitForAllExecutionsToEnd() throws InterruptedException {
+    while (!runningExecutions.isEmpty()) {
+      monitorRunningExecutions();
+      if (!runningExecutions.isEmpty()) {
+        sleepForMonitorInterval();
+      }
+    }
+  }
+
+  private void monitorRunningExecutions() {
+    final long periodOfNoRecordCountChangeInMillis = TimeUnit.MINUTES.toMillis(
         DURATION_OF_NO_RECORD_CHANGE_IN_MINS);
-    long stableRecordCountPeriodCounterInSeconds = 0;
-    do {
-      workflowExecution = monitorAndLog(dataset, workflowExecution.getId());
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+        "Requesting {} WorkflowExecutions.", runningExecutions.size());
+    final Map<ObjectId, WorkflowExecution> updatedWorkflowExecutions = workflowExecutionPoller
+        .poll(runningExecutions.stream().map(execution -> execution.workflowExecution.getId())
+            .collect(Collectors.toList()));
+    final Iterator<RunningExecution> iterator = runningExecutions.iterator();
+    while (iterator.hasNext()) {
+      final RunningExecution runningExecution = iterator.next();
+      final WorkflowExecution workflowExecution = updatedWorkflowExecutions
+          .get(runningExecution.workflowExecution.getId());
+      if (workflowExecution == null) {
+        //Keep the previous state and try again with the next poll
+        LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
+            "WorkflowExecution {} of datasetId {} not received, keeping previous state.",
+            runningExecution.workflowExecution.getId(), runningExecution.dataset.getDatasetId());
+        continue;
+      }
+      logWorkflowExecutionStatus(runningExecution.dataset, workflowExecution);
+      runningExecution.workflowExecution = workflowExecution;
+
+      final int processedRecords = workflowExecution.getMetisPlugins().get(0)
+          .getExecutionProgress().getProcessedRecords();
+      //If we have progress update the time of the last progress
+      final long now = System.currentTimeMillis();
+      if (runningExecution.previousProcessedRecords != processedRecords) {
+        runningExecution.lastProgressTimestamp = now;
+        runningExecution.previousProcessedRecords = processedRecords;
+      }
 
-      processedRecords = workflowExecution.getMetisPlugins().get(0).getExecutionProgress()
-          .getProcessedRecords();
-      //If we have progress update counters
-      if (previousProcessedRecords != processedRecords) {
-        stableRecordCountPeriodCounterInSeconds = 0;
-        previousProcessedRecords = processedRecords;
+      if (workflowExecution.getWorkflowStatus() == WorkflowStatus.FINISHED
+          || workflowExecution.getWorkflowStatus() == WorkflowStatus.FAILED
+          || workflowExecution.getWorkflowStatus() == WorkflowStatus.CANCELLED) {
+        updateLogsAfterExecution(runningExecution.dataset, workflowExecution);
+        iterator.remove();
+        continue;
       }
+
       //Request to cancel execution if we haven't had an update for sometime
-      stableRecordCountPeriodCounterInSeconds += propertiesHolder.monitorIntervalInSecs;
-      if (stableRecordCountPeriodCounterInSeconds >= periodOfNoRecordCountChangeInSeconds) {
+      if (now - runningExecution.lastProgressTimestamp >= periodOfNoRecordCountChangeInMillis) {
         cancelWorkflowExecution(workflowExecution.getId().toString());
-        stableRecordCountPeriodCounterInSeconds = 0;
+        runningExecution.lastProgressTimestamp = now;
       }
+    }
+  }
 
-      try {
-        Thread.sleep(TimeUnit.SECONDS.toMillis(propertiesHolder.monitorIntervalInSecs));
-      } catch (InterruptedException e) {
-        LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Exception occurred during sleep time",
-            e);
-        throw e;
-      }
-    } while (workflowExecution.getWorkflowStatus() != WorkflowStatus.FINISHED
-        && workflowExecution.getWorkflowStatus() != WorkflowStatus.FAILED
-        && workflowExecution.getWorkflowStatus() != WorkflowStatus.CANCELLED);
-    updateLogsAfterExecution(dataset, workflowExecution);
+  private void sleepForMonitorInterval() throws InterruptedException {
+    try {
+      Thread.sleep(TimeUnit.SECONDS.toMillis(propertiesHolder.monitorIntervalInSecs));
+    } catch (InterruptedException e) {
+      LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Exception occurred during sleep time",
+          e);
+      throw e;
+    }
   }
 
-  private WorkflowExecution monitorAndLog(Dataset dataset, ObjectId objectId) {
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
-        "Requesting WorkflowExecution for datasetId: {} execution.", dataset.getDatasetId());
-    WorkflowExecution updatedWorkflowExecution = monitorWorkflowExecution(objectId.toString());
+  private void logWorkflowExecutionStatus(Dataset dataset,
+      WorkflowExecution updatedWorkflowExecution) {
     AbstractMetisPlugin abstractMetisPlugin = updatedWorkflowExecution.getMetisPlugins().get(0);
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
         "WorkflowExecution status info: datasetId: {}, EcloudDatasetId: {}, ExecutionId: {}, PluginType: {}, ExternalTaskId: {}, PluginStatus: {}, ExpectedRecords: {}, ProcessedRecords: {}, ErrorRecords: {}, TaskStatus: {}",
@@ -203,7 +263,6 @@ public class ExecutorManager {
         abstractMetisPlugin.getExecutionProgress().getProcessedRecords(),
         abstractMetisPlugin.getExecutionProgress().getErrors(),
         abstractMetisPlugin.getExecutionProgress().getStatus());
-    return updatedWorkflowExecution;
   }
 
   private void updateLogsAfterExecution(Dataset dataset, WorkflowExecution workflowExecution) {
@@ -222,8 +281,7 @@ public class ExecutorManager {
         abstractMetisPlugin.getExecutionProgress().getErrors(),
         abstractMetisPlugin.getExecutionProgress()
             .getStatus());//Log only the status of the end result
-    LOGGER.info(processedDatasetsMarker,
-        dataset.getDatasetId()); //Gets appended and is not timestamp based
+    markDatasetAsProcessed(dataset.getDatasetId());
     totalExpectedRecords += abstractMetisPlugin.getExecutionProgress().getExpectedRecords();
     totalProcessedRecords += abstractMetisPlugin.getExecutionProgress().getProcessedRecords();
     totalErrorRecords += abstractMetisPlugin.getExecutionProgress().getErrors();
@@ -231,11 +289,6 @@ public class ExecutorManager {
 
   private WorkflowExecution sendDatasetForExecution(String datasetId) {
 
-    accessToken = loginAndGetAuthorizationToken();
-    HttpHeaders accessTokenHeader = new HttpHeaders();
-    accessTokenHeader
-        .set(AUTHORIZATION, "Bearer " + accessToken);
-
     Map<String, String> pathVariables = new HashMap<>();
     pathVariables.put("datasetId", datasetId);
 
@@ -244,10 +297,9 @@ public class ExecutorManager {
         .queryParam("enforcedPluginType", propertiesHolder.enforcedPluginType);
 
     try {
-      return ExternalRequestUtilMigration.retryableExternalRequest(() -> restTemplate
+      return authenticationTokenManager.executeAuthenticated(accessTokenHeader -> restTemplate
           .postForObject(builder.buildAndExpand(pathVariables).toUri().toString(),
-              new HttpEntity<>(null, accessTokenHeader),
-              WorkflowExecution.class, pathVariables));
+              new HttpEntity<>(null, accessTokenHeader), WorkflowExecution.class, pathVariables));
     } catch (Exception ex) {
       LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
           "Execution of DatasetId {}, failed to start because of remote call exception", datasetId);
@@ -256,39 +308,46 @@ public class ExecutorManager {
   }
 
   private WorkflowExecution monitorWorkflowExecution(String executionId) {
-    HttpHeaders accessTokenHeader = new HttpHeaders();
-    accessTokenHeader
-        .set(AUTHORIZATION, "Bearer " + accessToken);
     Map<String, String> pathVariables = new HashMap<>();
     pathVariables.put("executionId", executionId);
 
-    return ExternalRequestUtilMigration.retryableExternalRequest(() -> restTemplate.exchange
-        (getWorkflowExecutionUrl, HttpMethod.GET, new HttpEntity<>(null, accessTokenHeader),
-            WorkflowExecution.class, pathVariables).getBody());
+    return authenticationTokenManager.executeAuthenticated(accessTokenHeader -> restTemplate
+        .exchange(getWorkflowExecutionUrl, HttpMethod.GET,
+            new HttpEntity<>(null, accessTokenHeader), WorkflowExecution.class, pathVariables)
+        .getBody());
   }
 
   private void cancelWorkflowExecution(String executionId) {
-    HttpHeaders accessTokenHeader = new HttpHeaders();
-    accessTokenHeader
-        .set(AUTHORIZATION, "Bearer " + accessToken);
     Map<String, String> pathVariables = new HashMap<>();
     pathVariables.put("executionId", executionId);
 
-    ExternalRequestUtilMigration.retryableExternalRequest(() -> restTemplate.exchange
-        (cancelWorkflowExecutionUrl, HttpMethod.DELETE, new HttpEntity<>(null, accessTokenHeader),
-            Void.class, pathVariables));
+    authenticationTokenManager.executeAuthenticated(accessTokenHeader -> restTemplate
+        .exchange(cancelWorkflowExecutionUrl, HttpMethod.DELETE,
+            new HttpEntity<>(null, accessTokenHeader), Void.class, pathVariables));
   }
 
-  private String loginAndGetAuthorizationToken() {
-    UriComponentsBuilder authenticationBuilder = UriComponentsBuilder.fromUriString(loginUserUrl);
-    HttpHeaders authenticationHttpHeaders = new HttpHeaders();
-    authenticationHttpHeaders.set(AUTHORIZATION, "Basic " + new String(Base64.getEncoder()
-        .encode((propertiesHolder.metisUsername + ":" + propertiesHolder.metisPassword).getBytes()),
-        Charset.forName("UTF-8")));
+  /**
+   * The monitoring state of a workflow execution that was started and has not ended yet.
+   */
+  private static class RunningExecution {
 
-    MetisUser metisUser = ExternalRequestUtilMigration.retryableExternalRequest(() -> restTemplate
-        .postForObject(authenticationBuilder.build().toUri().toString(),
-            new HttpEntity<>(null, authenticationHttpHeaders), MetisUser.class));
-    return metisUser.getMetisUserAccessToken().getAccessToken();
+    private final Dataset dataset;
+    private WorkflowExecution workflowExecution;
+    private int previousProcessedRecords = 0;
+    private long lastProgressTimestamp = System.currentTimeMillis();
+
+    RunningExecution(Dataset dataset, WorkflowExecution workflowExecution) {
+      this.dataset = dataset;
+      this.workflowExecution = workflowExecution;
+    }
+
+    long getExpectedRecords() {
+      if (workflowExecution.getMetisPlugins() == null || workflowExecution.getMetisPlugins()
+          .isEmpty() || workflowExecution.getMetisPlugins().get(0).getExecutionProgress() == null) {
+        return 0;
+      }
+      return Math.max(0,
+          workflowExecution.getMetisPlugins().get(0).getExecutionProgress().getExpectedRecords());
+    }
   }
 }
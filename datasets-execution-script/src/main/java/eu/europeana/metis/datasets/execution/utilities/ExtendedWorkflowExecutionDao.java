@@ -0,0 +1,32 @@
+package eu.europeana.metis.datasets.execution.utilities;
+
+import eu.europeana.metis.core.dao.WorkflowExecutionDao;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import eu.europeana.metis.core.workflow.WorkflowExecution;
+import java.util.Collection;
+import java.util.List;
+import org.bson.types.ObjectId;
+
+/**
+ * Extends the {@link WorkflowExecutionDao} with reads that are needed by this script only.
+ */
+public class ExtendedWorkflowExecutionDao extends WorkflowExecutionDao {
+
+  private final MorphiaDatastoreProvider morphiaDatastoreProvider;
+
+  public ExtendedWorkflowExecutionDao(MorphiaDatastoreProvider morphiaDatastoreProvider) {
+    super(morphiaDatastoreProvider);
+    this.morphiaDatastoreProvider = morphiaDatastoreProvider;
+  }
+
+  /**
+   * Get all workflow executions with the given ids in one query.
+   *
+   * @param executionIds the ids of the workflow executions
+   * @return the workflow executions that were found, in no particular order
+   */
+  public List<WorkflowExecution> getWorkflowExecutions(Collection<ObjectId> executionIds) {
+    return morphiaDatastoreProvider.getDatastore().find(WorkflowExecution.class).field("_id")
+        .in(executionIds).asList();
+  }
+}
@@ -2,10 +2,10 @@ package eu.europeana.metis.datasets.execution.utilities;
 
 import com.mongodb.MongoSecurityException;
 import com.mongodb.MongoSocketException;
-import java.net.SocketException;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.external.request.RetryPolicy;
 import java.util.function.Supplier;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
 
 /**
@@ -14,50 +14,44 @@ import org.springframework.web.client.ResourceAccessException;
  */
 public final class ExternalRequestUtilMigration {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(ExternalRequestUtilMigration.class);
-  private static final int MAX_RETRIES = Integer.MAX_VALUE;
-  private static final int SLEEP_TIMEOUT = 2000;
+  // Executions keep running in metis core while it cannot be reached, so the run must not stop:
+  // we back off up to a minute and keep retrying (only client errors are not retried).
+  private static final int MAX_ATTEMPTS = Integer.MAX_VALUE;
+  private static final long INITIAL_DELAY_IN_MILLIS = 1000;
+  private static final long MAX_DELAY_IN_MILLIS = 60000;
+  private static final double DELAY_MULTIPLIER = 2;
+
+  private static final ExternalRequestExecutor<ExternalService> EXTERNAL_REQUEST_EXECUTOR =
+      new ExternalRequestExecutor<>(ExternalService.class, new RetryPolicy(MAX_ATTEMPTS,
+          INITIAL_DELAY_IN_MILLIS, MAX_DELAY_IN_MILLIS, DELAY_MULTIPLIER)
+          .abortOn(HttpClientErrorException.class));
 
   private ExternalRequestUtilMigration() {
   }
 
   /**
-   * Retries a request to an external service like a database. This method is meant to be called
-   * when request throws a {@link RuntimeException} that contains a {@link SocketException} cause
-   * with message "Connection reset". This method was intentionally implemented for the above
-   * described issue that is caused in the Bluemix Cloud Foundry environment. Some examples are:
+   * Retries a request to an external service like a database. Failures are retried with an
+   * exponentially growing wait time, up to a minute, until the request succeeds. Client errors
+   * (4xx) of an HTTP request are never retried. While a service
+   * keeps failing, requests to it are held back by a circuit breaker. Some examples of retried exceptions are:
    * <ul>
    * <li>{@link MongoSocketException}</li> From a Mongo request
    * <li>{@link MongoSecurityException}</li> From a Mongo request
    * <li>{@link ResourceAccessException}</li> From an HTTP request
    * </ul>
    *
+   * @param service the service the request is sent to
    * @param supplier the respective supplier encapsulating the external request
    * @return the expected object as a result of the external request
    */
-  public static <R> R retryableExternalRequest(
-      Supplier<R> supplier) {
-    int retryCounter = 0;
+  public static <R> R retryableExternalRequest(ExternalService service, Supplier<R> supplier) {
+    return EXTERNAL_REQUEST_EXECUTOR.execute(service, supplier);
+  }
 
-    do {
-      try {
-        return supplier.get();
-      } catch (RuntimeException e) {
-        retryCounter++;
-        //Re-throw if max retries exceeded.
-        if (retryCounter > MAX_RETRIES) {
-          throw e;
-        }
-        LOGGER
-            .warn(String.format("External request has failed! Retrying in %sms", SLEEP_TIMEOUT), e);
-        try {
-          Thread.sleep(SLEEP_TIMEOUT);
-        } catch (InterruptedException ex) {
-          LOGGER.warn("Thread was interrupted while waiting for retry.", ex);
-          Thread.currentThread().interrupt();
-          return null;
-        }
-      }
-    } while (true);
+  /**
+   * Logs the retry and latency statistics of all requests so far.
+   */
+  public static void logStatistics() {
+    EXTERNAL_REQUEST_EXECUTOR.logStatistics();
   }
 }
@@ -0,0 +1,117 @@
+package eu.europeana.metis.datasets.execution.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the dataset ids that have already been processed, for one of the harvesting, preview or
+ * publish runs.
+ * <p>The ids are held in a hash set and persisted in an append-only file, one id per line, which
+ * is the same format that the skip files of the migration results tool have. Every appended id is
+ * forced to disk before the call returns. An incomplete last line, left behind when the tool was
+ * killed during a write, is removed when the file is opened: that dataset will then simply be
+ * processed again.</p>
+ */
+public class ProcessedDatasetStore implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProcessedDatasetStore.class);
+  private static final byte LINE_SEPARATOR = '\n';
+
+  private final Path file;
+  private final Set<String> processedDatasetIds = new HashSet<>();
+  private final FileChannel channel;
+
+  /**
+   * Opens the store, creating the file if it does not exist yet.
+   *
+   * @param file the file containing the processed dataset ids
+   * @throws IOException if the file could not be read or opened for writing
+   */
+  public ProcessedDatasetStore(Path file) throws IOException {
+    this.file = file;
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    this.channel = FileChannel
+        .open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      load();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void load() throws IOException {
+    final byte[] content = Files.readAllBytes(file);
+    int lastLineEnd = content.length;
+    while (lastLineEnd > 0 && content[lastLineEnd - 1] != LINE_SEPARATOR) {
+      lastLineEnd--;
+    }
+    if (lastLineEnd < content.length) {
+      LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
+          "Processed datasets file {} ends with an incomplete line '{}', which is removed.", file,
+          new String(Arrays.copyOfRange(content, lastLineEnd, content.length),
+              StandardCharsets.UTF_8));
+      channel.truncate(lastLineEnd);
+      channel.force(true);
+    }
+    final String completeLines = new String(content, 0, lastLineEnd, StandardCharsets.UTF_8);
+    for (String line : completeLines.split("\n")) {
+      final String datasetId = line.trim();
+      if (!datasetId.isEmpty()) {
+        processedDatasetIds.add(datasetId);
+      }
+    }
+    channel.position(channel.size());
+  }
+
+  /**
+   * @param datasetId the dataset id
+   * @return whether the dataset has already been processed
+   */
+  public synchronized boolean contains(String datasetId) {
+    return processedDatasetIds.contains(datasetId);
+  }
+
+  /**
+   * Marks a dataset as processed. The id is on disk when this method returns.
+   *
+   * @param datasetId the dataset id
+   * @throws IOException if the id could not be written
+   */
+  public synchronized void add(String datasetId) throws IOException {
+    if (!processedDatasetIds.add(datasetId)) {
+      return;
+    }
+    final ByteBuffer buffer = ByteBuffer
+        .wrap((datasetId + (char) LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * @return the number of processed datasets
+   */
+  public synchronized int size() {
+    return processedDatasetIds.size();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+}
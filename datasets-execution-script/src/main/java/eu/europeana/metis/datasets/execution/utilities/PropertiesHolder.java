@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Properties;
 import org.apache.commons.lang3.StringUtils;
+import org.bson.types.ObjectId;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
@@ -19,18 +20,21 @@ public class PropertiesHolder {
 
   public static final Marker EXECUTION_LOGS_MARKER = MarkerFactory.getMarker("EXECUTION_LOGS");
   public static final Marker FINAL_DATASET_STATUS = MarkerFactory.getMarker("FINAL_DATASET_STATUS");
-  public static final Marker PROCESSED_DATASETS_HARVESTING = MarkerFactory.getMarker("PROCESSED_DATASETS_HARVESTING");
-  public static final Marker PROCESSED_DATASETS_PREVIEW = MarkerFactory.getMarker("PROCESSED_DATASETS_PREVIEW");
-  public static final Marker PROCESSED_DATASETS_PUBLISH = MarkerFactory.getMarker("PROCESSED_DATASETS_PUBLISH");
 
   public final String organizationId;
   public final String metisCoreHost;
   public final String metisAuthenticationHost;
   public final int monitorIntervalInSecs;
+  public final boolean monitorThroughDatabase;
   public final String enforcedPluginType;
   public final String metisUsername;
   public final String metisPassword;
+  public final int metisAccessTokenValidityInMins;
   public final int numberOfDatasetsToProcess;
+  public final int datasetsPerRequest;
+  public final ObjectId startAfterDatasetId;
+  public final int maxConcurrentExecutions;
+  public final long maxExpectedRecordsInFlight;
   public final String suffixOfProcessedDatasetsLogFile;
   public final String truststorePath;
   public final String truststorePassword;
@@ -54,11 +58,22 @@ public class PropertiesHolder {
     metisCoreHost = properties.getProperty("metis.core.host");
     metisAuthenticationHost = properties.getProperty("metis.authentication.host");
     monitorIntervalInSecs = Integer.parseInt(properties.getProperty("monitor.interval.in.secs"));
+    monitorThroughDatabase = Boolean.parseBoolean(properties.getProperty("monitor.through.database"));
     enforcedPluginType = properties.getProperty("enforced.plugin.type");
     metisUsername = properties.getProperty("metis.username");
     metisPassword = properties.getProperty("metis.password");
+    metisAccessTokenValidityInMins = StringUtils.isNotBlank(properties.getProperty("metis.access.token.validity.in.mins")) ? Integer
+        .parseInt(properties.getProperty("metis.access.token.validity.in.mins")) : 10;
     numberOfDatasetsToProcess = StringUtils.isNotBlank(properties.getProperty("number.of.datasets.to.process")) ? Integer
         .parseInt(properties.getProperty("number.of.datasets.to.process")) : Integer.MAX_VALUE;
+    datasetsPerRequest = StringUtils.isNotBlank(properties.getProperty("datasets.per.request")) ? Integer
+        .parseInt(properties.getProperty("datasets.per.request")) : 100;
+    startAfterDatasetId = StringUtils.isNotBlank(properties.getProperty("start.after.dataset.id")) ? new ObjectId(
+        properties.getProperty("start.after.dataset.id").trim()) : null;
+    maxConcurrentExecutions = StringUtils.isNotBlank(properties.getProperty("max.concurrent.executions")) ? Integer
+        .parseInt(properties.getProperty("max.concurrent.executions")) : 1;
+    maxExpectedRecordsInFlight = StringUtils.isNotBlank(properties.getProperty("max.expected.records.in.flight")) ? Long
+        .parseLong(properties.getProperty("max.expected.records.in.flight")) : Long.MAX_VALUE;
     suffixOfProcessedDatasetsLogFile = properties.getProperty("suffix.of.processed.datasets.log.file");
     truststorePath = properties.getProperty("truststore.path");
     truststorePassword = properties.getProperty("truststore.password");
@@ -0,0 +1,72 @@
+package eu.europeana.metis.datasets.execution.utilities;
+
+import eu.europeana.metis.core.workflow.WorkflowExecution;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gathers the status of all watched workflow executions in one pass.
+ * <p>If a {@link ExtendedWorkflowExecutionDao} is provided, all executions are read with one
+ * database query. Executions that are not found that way, or all executions if there is no
+ * database access, are requested one by one from metis core.</p>
+ */
+public class WorkflowExecutionPoller {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkflowExecutionPoller.class);
+
+  private final ExtendedWorkflowExecutionDao workflowExecutionDao;
+  private final Function<String, WorkflowExecution> remoteWorkflowExecutionSupplier;
+
+  /**
+   * Constructor.
+   *
+   * @param workflowExecutionDao the dao to read the executions with. Can be null, in which case
+   * all executions are requested from metis core
+   * @param remoteWorkflowExecutionSupplier requests one execution, by its id, from metis core
+   */
+  public WorkflowExecutionPoller(ExtendedWorkflowExecutionDao workflowExecutionDao,
+      Function<String, WorkflowExecution> remoteWorkflowExecutionSupplier) {
+    this.workflowExecutionDao = workflowExecutionDao;
+    this.remoteWorkflowExecutionSupplier = remoteWorkflowExecutionSupplier;
+    if (workflowExecutionDao == null) {
+      // Metis core has no endpoint that returns a set of executions by their ids.
+      LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
+          "Monitoring without database access (monitor.through.database=false): every watched "
+              + "execution is requested separately from metis core on every interval.");
+    }
+  }
+
+  /**
+   * Get the current state of the given workflow executions.
+   *
+   * @param executionIds the ids of the executions to poll
+   * @return map from execution id to the current state of the execution
+   */
+  public Map<ObjectId, WorkflowExecution> poll(Collection<ObjectId> executionIds) {
+    final Map<ObjectId, WorkflowExecution> result = new HashMap<>();
+    if (executionIds.isEmpty()) {
+      return result;
+    }
+    if (workflowExecutionDao != null) {
+      ExternalRequestUtilMigration.retryableExternalRequest(ExternalService.MONGO,
+          () -> workflowExecutionDao.getWorkflowExecutions(executionIds))
+          .forEach(workflowExecution -> result.put(workflowExecution.getId(), workflowExecution));
+    }
+    for (ObjectId executionId : executionIds) {
+      if (!result.containsKey(executionId)) {
+        if (workflowExecutionDao != null) {
+          LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
+              "WorkflowExecution {} not found in database, requesting it from metis core.",
+              executionId);
+        }
+        result.put(executionId, remoteWorkflowExecutionSupplier.apply(executionId.toString()));
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,69 @@
+package eu.europeana.metis.datasets.execution.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessedDatasetStoreTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testAddedIdsAreReloaded() throws IOException {
+    final Path file = temporaryFolder.getRoot().toPath().resolve("processed.txt");
+    try (ProcessedDatasetStore store = new ProcessedDatasetStore(file)) {
+      store.add("1");
+      store.add("2");
+      store.add("1");
+      assertEquals(2, store.size());
+    }
+    assertEquals("1\n2\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    try (ProcessedDatasetStore store = new ProcessedDatasetStore(file)) {
+      assertEquals(2, store.size());
+      assertTrue(store.contains("1"));
+      assertTrue(store.contains("2"));
+      assertFalse(store.contains("3"));
+    }
+  }
+
+  @Test
+  public void testIncompleteLastLineIsRemoved() throws IOException {
+    final Path file = temporaryFolder.getRoot().toPath().resolve("processed.txt");
+    try (ProcessedDatasetStore store = new ProcessedDatasetStore(file)) {
+      store.add("1");
+      store.add("2");
+    }
+
+    // Simulate a crash in the middle of writing the third id.
+    Files.write(file, "3".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    try (ProcessedDatasetStore store = new ProcessedDatasetStore(file)) {
+      assertEquals(2, store.size());
+      assertFalse(store.contains("3"));
+      assertEquals("1\n2\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+      store.add("3");
+    }
+    assertEquals("1\n2\n3\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testFileWithOnlyAnIncompleteLineIsEmptied() throws IOException {
+    final Path file = temporaryFolder.getRoot().toPath().resolve("processed.txt");
+    Files.write(file, "12".getBytes(StandardCharsets.UTF_8));
+    try (ProcessedDatasetStore store = new ProcessedDatasetStore(file)) {
+      assertEquals(0, store.size());
+      store.add("1");
+    }
+    assertEquals("1\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+  }
+}
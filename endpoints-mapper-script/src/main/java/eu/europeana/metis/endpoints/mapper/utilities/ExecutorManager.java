@@ -2,20 +2,25 @@ package eu.europeana.metis.endpoints.mapper.utilities;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import eu.europeana.metis.core.dao.DatasetDao;
 import eu.europeana.metis.core.dataset.Dataset;
 import eu.europeana.metis.core.workflow.Workflow;
+import eu.europeana.metis.endpoints.mapper.utilities.WorkflowChangeset.Change;
 import eu.europeana.metis.core.workflow.plugins.AbstractMetisPluginMetadata;
 import eu.europeana.metis.core.workflow.plugins.IndexToPreviewPluginMetadata;
 import eu.europeana.metis.core.workflow.plugins.IndexToPublishPluginMetadata;
 import eu.europeana.metis.core.workflow.plugins.OaipmhHarvestPluginMetadata;
 
 /**
- * Handles execution of the modes
+ * Handles execution of the modes. Workflows are read incrementally and written with bulk writes,
+ * see {@link ExtendedWorkflowDao}.
  *
  * @author Simon Tzanakis (Simon.Tzanakis@europeana.eu)
  * @since 2018-05-02
@@ -25,8 +30,9 @@ public class ExecutorManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorManager.class);
   private static final String WORKFLOW_WITH_DATASET_ID_UPDATED_IN_ORIGINAL_DATABASE_TEMPLATE =
       "Workflow with datasetId: {}, updated in original database";
-  private static final String WORKFLOW_LIST_SIZE_TEMPLATE = "Workflow list size: {}";
+  private static final String DATASET_LIST_SIZE_TEMPLATE = "Dataset list size: {}";
   private static final String WORKFLOW_PROCESSED_COUNTER_TEMPLATE = "WorkflowProcessedCounter: {}";
+  private static final String WORKFLOW_WRITTEN_COUNTER_TEMPLATE = "WorkflowWrittenCounter: {}";
 
   private final PropertiesHolder propertiesHolder;
   private final DatasetDao datasetDaoOriginal;
@@ -41,51 +47,50 @@ public class ExecutorManager {
     this.workflowDaoTemporary = workflowDaoTemporary;
   }
 
-  private static List<Workflow> getWorkflowsForOrganizationId(String organizationId,
-      DatasetDao datasetSource, ExtendedWorkflowDao workflowSource) {
-    final Set<String> datasetIds = datasetSource.getAllDatasetsByOrganizationId(organizationId)
-        .stream().map(Dataset::getDatasetId).collect(Collectors.toSet());
-    return workflowSource.getAllWorkflows(datasetIds);
+  private static Map<String, Dataset> getDatasetsForOrganizationId(String organizationId,
+      DatasetDao datasetSource) {
+    return datasetSource.getAllDatasetsByOrganizationId(organizationId).stream()
+        .collect(Collectors.toMap(Dataset::getDatasetId, Function.identity()));
   }
 
   public void copyWorkflowsMode() {
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Start the copying of workflows");
 
-    // Obtain the workflows
-    final List<Workflow> workflows = getWorkflowsForOrganizationId(propertiesHolder.organizationId,
-        datasetDaoOriginal, workflowDaoOriginal);
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, WORKFLOW_LIST_SIZE_TEMPLATE,
-        workflows.size());
+    // Obtain the datasets
+    final Map<String, Dataset> datasetsById = getDatasetsForOrganizationId(
+        propertiesHolder.organizationId, datasetDaoOriginal);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, DATASET_LIST_SIZE_TEMPLATE,
+        datasetsById.size());
 
     // Copy original workflows to temporary database
-    workflows.forEach(workflow -> {
-      workflowDaoTemporary.create(workflow);
-      LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
-          "Workflow with datasetId: {}, created in temporary database", workflow.getDatasetId());
-    });
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, WORKFLOW_PROCESSED_COUNTER_TEMPLATE,
-        workflows.size());
+    processWorkflowsInBatches(workflowDaoOriginal, workflowDaoTemporary, datasetsById,
+        workflow -> {}, workflowDaoTemporary::computeWorkflowHash,
+        batch -> workflowDaoTemporary.upsertWorkflows(batch, propertiesHolder.bulkWriteBatchSize),
+        "Workflow with datasetId: {}, created in temporary database");
   }
 
   public void createWorkflows(Mode mode) {
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Start the creation of the map");
 
-    // Obtain the workflows
-    final List<Workflow> workflows = getWorkflowsForOrganizationId(propertiesHolder.organizationId,
-        datasetDaoOriginal, workflowDaoOriginal);
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, WORKFLOW_LIST_SIZE_TEMPLATE,
-        workflows.size());
+    // Obtain the datasets
+    final Map<String, Dataset> datasetsById = getDatasetsForOrganizationId(
+        propertiesHolder.organizationId, datasetDaoOriginal);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, DATASET_LIST_SIZE_TEMPLATE,
+        datasetsById.size());
 
     // Overwrite workflow with europeana oai endpoint in original database
-    workflows.forEach(workflow -> overwriteWorkflowInDatabase(workflow, mode));
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, WORKFLOW_PROCESSED_COUNTER_TEMPLATE,
-        workflows.size());
+    processWorkflowsInBatches(workflowDaoOriginal, workflowDaoOriginal, datasetsById,
+        workflow -> overwriteWorkflow(workflow, mode, datasetsById),
+        workflowDaoOriginal::computePluginsMetadataHash,
+        batch -> workflowDaoOriginal.replaceWorkflows(batch, propertiesHolder.bulkWriteBatchSize),
+        WORKFLOW_WITH_DATASET_ID_UPDATED_IN_ORIGINAL_DATABASE_TEMPLATE);
   }
 
-  private void overwriteWorkflowInDatabase(Workflow workflow, Mode mode) {
+  private void overwriteWorkflow(Workflow workflow, Mode mode,
+      Map<String, Dataset> datasetsById) {
     List<AbstractMetisPluginMetadata> metisPluginsMetadata = new ArrayList<>(1);
     if (mode == Mode.CREATE_OAIPMH_WORKFLOWS) {
-      Dataset dataset = datasetDaoOriginal.getDatasetByDatasetId(workflow.getDatasetId());
+      Dataset dataset = datasetsById.get(workflow.getDatasetId());
       OaipmhHarvestPluginMetadata oaipmhHarvestPluginMetadata = new OaipmhHarvestPluginMetadata();
       oaipmhHarvestPluginMetadata.setUrl(propertiesHolder.europeanaOaiEndpoint);
       oaipmhHarvestPluginMetadata.setMetadataFormat("edm");
@@ -108,28 +113,77 @@ public class ExecutorManager {
     }
     metisPluginsMetadata.get(0).setMocked(false);
     metisPluginsMetadata.get(0).setEnabled(true);
-    workflowDaoOriginal.update(workflow);
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
-        WORKFLOW_WITH_DATASET_ID_UPDATED_IN_ORIGINAL_DATABASE_TEMPLATE, workflow.getDatasetId());
   }
 
   public void reverseWorkflows() {
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
         "Start the reversing to the original information of the map");
 
-    // Obtain the workflows
-    final List<Workflow> workflows = getWorkflowsForOrganizationId(propertiesHolder.organizationId,
-        datasetDaoOriginal, workflowDaoTemporary);
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, WORKFLOW_LIST_SIZE_TEMPLATE,
-        workflows.size());
+    // Obtain the datasets
+    final Map<String, Dataset> datasetsById = getDatasetsForOrganizationId(
+        propertiesHolder.organizationId, datasetDaoOriginal);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, DATASET_LIST_SIZE_TEMPLATE,
+        datasetsById.size());
 
     // Replace workflows(backed up) from the temporary to the original database
-    workflows.forEach(workflow -> {
-      workflowDaoOriginal.update(workflow);
-      LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
-          WORKFLOW_WITH_DATASET_ID_UPDATED_IN_ORIGINAL_DATABASE_TEMPLATE, workflow.getDatasetId());
-    });
+    processWorkflowsInBatches(workflowDaoTemporary, workflowDaoOriginal, datasetsById,
+        workflow -> {}, workflowDaoOriginal::computeWorkflowHash,
+        batch -> workflowDaoOriginal.upsertWorkflows(batch, propertiesHolder.bulkWriteBatchSize),
+        WORKFLOW_WITH_DATASET_ID_UPDATED_IN_ORIGINAL_DATABASE_TEMPLATE);
+  }
+
+  /**
+   * Streams the workflows of the datasets from the source, prepares every workflow and writes them
+   * in batches, so that only one batch of workflows is in memory at a time. Before that a snapshot
+   * of the workflows in the target is taken: workflows of which the hash is the same in the target
+   * are not written. Modes that copy workflows hash the whole workflow, modes that only overwrite
+   * the plugins hash the plugin metadata. The resulting changeset is logged.
+   */
+  private void processWorkflowsInBatches(ExtendedWorkflowDao workflowSource,
+      ExtendedWorkflowDao workflowTarget, Map<String, Dataset> datasetsById,
+      Consumer<Workflow> preparation, Function<Workflow, String> hashFunction,
+      ToIntFunction<List<Workflow>> batchWriter, String workflowWrittenTemplate) {
+    final WorkflowSnapshot targetSnapshot = WorkflowSnapshot.take(workflowTarget,
+        datasetsById.keySet(), propertiesHolder.datasetIdsPerQuery, hashFunction);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+        "Snapshot taken of {} workflows in target database", targetSnapshot.size());
+    final WorkflowChangeset changeset = new WorkflowChangeset(targetSnapshot);
+
+    int processedCount = 0;
+    int writtenCount = 0;
+    final List<Workflow> batch = new ArrayList<>(propertiesHolder.bulkWriteBatchSize);
+    try (WorkflowIterator workflows = workflowSource
+        .iterateAllWorkflows(datasetsById.keySet(), propertiesHolder.datasetIdsPerQuery)) {
+      while (workflows.hasNext()) {
+        final Workflow workflow = workflows.next();
+        processedCount++;
+        preparation.accept(workflow);
+        if (changeset.register(workflow.getDatasetId(), hashFunction.apply(workflow))
+            == Change.UNCHANGED) {
+          continue;
+        }
+        batch.add(workflow);
+        if (batch.size() == propertiesHolder.bulkWriteBatchSize) {
+          writtenCount += writeBatch(batch, batchWriter, workflowWrittenTemplate);
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      writtenCount += writeBatch(batch, batchWriter, workflowWrittenTemplate);
+    }
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, WORKFLOW_PROCESSED_COUNTER_TEMPLATE,
-        workflows.size());
+        processedCount);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, WORKFLOW_WRITTEN_COUNTER_TEMPLATE,
+        writtenCount);
+    changeset.log();
+  }
+
+  private static int writeBatch(List<Workflow> batch, ToIntFunction<List<Workflow>> batchWriter,
+      String workflowWrittenTemplate) {
+    final int writtenCount = batchWriter.applyAsInt(batch);
+    batch.forEach(writtenWorkflow -> LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+        workflowWrittenTemplate, writtenWorkflow.getDatasetId()));
+    batch.clear();
+    return writtenCount;
   }
 }
@@ -1,12 +1,30 @@
 package eu.europeana.metis.endpoints.mapper.utilities;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteRequestBuilder;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBCollection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Set;
 import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
 import eu.europeana.metis.core.workflow.Workflow;
+import org.mongodb.morphia.DatastoreImpl;
+import org.mongodb.morphia.mapping.Mapper;
+import org.mongodb.morphia.query.FindOptions;
 
 public class ExtendedWorkflowDao extends eu.europeana.metis.core.dao.WorkflowDao {
 
+  private static final String ID_FIELD = "_id";
+  private static final String PLUGINS_METADATA_FIELD = "metisPluginsMetadata";
+  private static final int HASH_LENGTH_IN_BYTES = 16;
+
   private MorphiaDatastoreProvider morphiaDatastoreProvider;
 
   public ExtendedWorkflowDao(MorphiaDatastoreProvider morphiaDatastoreProvider) {
@@ -14,8 +32,109 @@ public class ExtendedWorkflowDao extends eu.europeana.metis.core.dao.WorkflowDao
     this.morphiaDatastoreProvider = morphiaDatastoreProvider;
   }
 
-  public List<Workflow> getAllWorkflows(Set<String> datasetIds) {
-    return morphiaDatastoreProvider.getDatastore().find(Workflow.class).field("datasetId")
-        .in(datasetIds).asList();
+  /**
+   * Iterates over the workflows of the given datasets. The workflows are not loaded in memory all
+   * at once and the dataset ids are not sent in one query, but in chunks of the given size.
+   *
+   * @param datasetIds the dataset ids of which to get the workflows
+   * @param datasetIdsPerQuery the maximum number of dataset ids to send in one query
+   * @return the iterator over the workflows, which should be closed after use
+   */
+  public WorkflowIterator iterateAllWorkflows(Set<String> datasetIds, int datasetIdsPerQuery) {
+    final List<String> datasetIdList = new ArrayList<>(datasetIds);
+    final List<List<String>> datasetIdChunks = new ArrayList<>();
+    for (int start = 0; start < datasetIdList.size(); start += datasetIdsPerQuery) {
+      datasetIdChunks.add(datasetIdList
+          .subList(start, Math.min(start + datasetIdsPerQuery, datasetIdList.size())));
+    }
+    return new WorkflowIterator(datasetIdChunks,
+        datasetIdChunk -> morphiaDatastoreProvider.getDatastore().find(Workflow.class)
+            .field("datasetId").in(datasetIdChunk).fetch(new FindOptions()));
+  }
+
+  /**
+   * Stores the workflows by their id, inserting the ones that don't exist yet. This is the bulk
+   * equivalent of calling {@link #create(Workflow)} or {@link #update(Workflow)} for every
+   * workflow. The workflows are sent in unordered bulk writes of at most the given batch size.
+   *
+   * @param workflows the workflows to store
+   * @param batchSize the maximum number of workflows per bulk write
+   * @return the number of workflows that were inserted or matched an existing workflow
+   */
+  public int upsertWorkflows(List<Workflow> workflows, int batchSize) {
+    return writeWorkflows(workflows, batchSize, true);
+  }
+
+  /**
+   * Replaces existing workflows by their id. Workflows that don't exist are not stored. The
+   * workflows are sent in unordered bulk writes of at most the given batch size.
+   *
+   * @param workflows the workflows to store
+   * @param batchSize the maximum number of workflows per bulk write
+   * @return the number of workflows that matched an existing workflow
+   */
+  public int replaceWorkflows(List<Workflow> workflows, int batchSize) {
+    return writeWorkflows(workflows, batchSize, false);
+  }
+
+  /**
+   * Computes a compact hash of the plugin metadata of a workflow, as it would be stored in the
+   * database. Two workflows with the same hash have the same plugin metadata.
+   *
+   * @param workflow the workflow
+   * @return the hash, Base64 encoded
+   */
+  public String computePluginsMetadataHash(Workflow workflow) {
+    return computeHash(getMapper().toDBObject(workflow).get(PLUGINS_METADATA_FIELD));
+  }
+
+  /**
+   * Computes a compact hash of the whole workflow, as it would be stored in the database. Two
+   * workflows with the same hash are the same document.
+   *
+   * @param workflow the workflow
+   * @return the hash, Base64 encoded
+   */
+  public String computeWorkflowHash(Workflow workflow) {
+    return computeHash(getMapper().toDBObject(workflow));
+  }
+
+  private static String computeHash(Object document) {
+    final MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    final byte[] hash = messageDigest
+        .digest(String.valueOf(document).getBytes(StandardCharsets.UTF_8));
+    return Base64.getEncoder().encodeToString(Arrays.copyOf(hash, HASH_LENGTH_IN_BYTES));
+  }
+
+  private Mapper getMapper() {
+    return ((DatastoreImpl) morphiaDatastoreProvider.getDatastore()).getMapper();
+  }
+
+  private int writeWorkflows(List<Workflow> workflows, int batchSize, boolean upsert) {
+    final DBCollection collection = morphiaDatastoreProvider.getDatastore()
+        .getCollection(Workflow.class);
+    final Mapper mapper = getMapper();
+    int writtenCount = 0;
+    for (int start = 0; start < workflows.size(); start += batchSize) {
+      final BulkWriteOperation bulkOperation = collection.initializeUnorderedBulkOperation();
+      for (Workflow workflow : workflows.subList(start,
+          Math.min(start + batchSize, workflows.size()))) {
+        final BulkWriteRequestBuilder request = bulkOperation
+            .find(new BasicDBObject(ID_FIELD, workflow.getId()));
+        if (upsert) {
+          request.upsert().replaceOne(mapper.toDBObject(workflow));
+        } else {
+          request.replaceOne(mapper.toDBObject(workflow));
+        }
+      }
+      final BulkWriteResult result = bulkOperation.execute();
+      writtenCount += result.getMatchedCount() + result.getUpserts().size();
+    }
+    return writtenCount;
   }
 }
@@ -4,6 +4,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
@@ -21,6 +22,8 @@ public class PropertiesHolder {
   public final String organizationId;
   public final String europeanaOaiEndpoint;
   public final Mode mode;
+  public final int bulkWriteBatchSize;
+  public final int datasetIdsPerQuery;
   public final String truststorePath;
   public final String truststorePassword;
   public final String[] mongoHosts;
@@ -43,6 +46,10 @@ public class PropertiesHolder {
     organizationId = properties.getProperty("organization.id");
     europeanaOaiEndpoint = properties.getProperty("europeana.oai.endpoint");
     mode = Mode.getModeFromEnumName(properties.getProperty("mode"));
+    bulkWriteBatchSize = StringUtils.isNotBlank(properties.getProperty("bulk.write.batch.size"))
+        ? Integer.parseInt(properties.getProperty("bulk.write.batch.size")) : 1000;
+    datasetIdsPerQuery = StringUtils.isNotBlank(properties.getProperty("dataset.ids.per.query"))
+        ? Integer.parseInt(properties.getProperty("dataset.ids.per.query")) : 1000;
     truststorePath = properties.getProperty("truststore.path");
     truststorePassword = properties.getProperty("truststore.password");
     mongoHosts = properties.getProperty("mongo.hosts").split(",");
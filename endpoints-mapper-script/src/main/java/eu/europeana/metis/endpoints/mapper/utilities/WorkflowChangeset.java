@@ -0,0 +1,67 @@
+package eu.europeana.metis.endpoints.mapper.utilities;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares workflows that are about to be written with a {@link WorkflowSnapshot} of the target
+ * database, and keeps count of the differences. Only workflows that are added or changed need to
+ * be written.
+ */
+public class WorkflowChangeset {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkflowChangeset.class);
+
+  /**
+   * The difference of a workflow with the snapshot.
+   */
+  public enum Change {ADDED, CHANGED, UNCHANGED}
+
+  private final WorkflowSnapshot targetSnapshot;
+  private final Set<String> registeredDatasetIds = new HashSet<>();
+  private int addedCount = 0;
+  private int changedCount = 0;
+  private int unchangedCount = 0;
+
+  public WorkflowChangeset(WorkflowSnapshot targetSnapshot) {
+    this.targetSnapshot = targetSnapshot;
+  }
+
+  /**
+   * Compares a workflow with the snapshot and counts the result.
+   *
+   * @param datasetId the dataset id of the workflow
+   * @param hash the hash of the workflow as it is to be written
+   * @return the difference with the snapshot
+   */
+  public Change register(String datasetId, String hash) {
+    registeredDatasetIds.add(datasetId);
+    final String targetHash = targetSnapshot.getHash(datasetId);
+    final Change change;
+    if (targetHash == null) {
+      change = Change.ADDED;
+      addedCount++;
+    } else if (targetHash.equals(hash)) {
+      change = Change.UNCHANGED;
+      unchangedCount++;
+    } else {
+      change = Change.CHANGED;
+      changedCount++;
+    }
+    return change;
+  }
+
+  /**
+   * Logs the number of added, changed and unchanged workflows, and the number of workflows in the
+   * target database for which there was no workflow to write.
+   */
+  public void log() {
+    final long missingCount = targetSnapshot.getDatasetIds().stream()
+        .filter(datasetId -> !registeredDatasetIds.contains(datasetId)).count();
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+        "Changeset: {} added, {} changed, {} unchanged (not written), {} only in target database",
+        addedCount, changedCount, unchangedCount, missingCount);
+  }
+}
@@ -0,0 +1,55 @@
+package eu.europeana.metis.endpoints.mapper.utilities;
+
+import eu.europeana.metis.core.workflow.Workflow;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import org.mongodb.morphia.query.MorphiaIterator;
+
+/**
+ * Iterates over the workflows of a list of datasets without loading them all in memory. The
+ * dataset ids are split in chunks of bounded size, and for every chunk the workflows are streamed
+ * through a database cursor. Only one cursor is open at a time, and it should be closed by calling
+ * {@link #close()} if the iteration is not completed.
+ */
+public class WorkflowIterator implements Iterator<Workflow>, AutoCloseable {
+
+  private final Iterator<List<String>> datasetIdChunks;
+  private final Function<List<String>, MorphiaIterator<Workflow, Workflow>> cursorOpener;
+  private MorphiaIterator<Workflow, Workflow> cursor;
+
+  WorkflowIterator(List<List<String>> datasetIdChunks,
+      Function<List<String>, MorphiaIterator<Workflow, Workflow>> cursorOpener) {
+    this.datasetIdChunks = datasetIdChunks.iterator();
+    this.cursorOpener = cursorOpener;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (cursor == null || !cursor.hasNext()) {
+      close();
+      if (!datasetIdChunks.hasNext()) {
+        return false;
+      }
+      cursor = cursorOpener.apply(datasetIdChunks.next());
+    }
+    return true;
+  }
+
+  @Override
+  public Workflow next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return cursor.next();
+  }
+
+  @Override
+  public void close() {
+    if (cursor != null) {
+      cursor.close();
+      cursor = null;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package eu.europeana.metis.endpoints.mapper.utilities;
+
+import eu.europeana.metis.core.workflow.Workflow;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A snapshot of the workflows of a list of datasets in one database. Only a compact content hash
+ * is kept per workflow (see {@link ExtendedWorkflowDao#computeWorkflowHash(Workflow)} and
+ * {@link ExtendedWorkflowDao#computePluginsMetadataHash(Workflow)}), so that the snapshot of a
+ * large organization fits in memory.
+ */
+public class WorkflowSnapshot {
+
+  private final Map<String, String> hashesByDatasetId;
+
+  private WorkflowSnapshot(Map<String, String> hashesByDatasetId) {
+    this.hashesByDatasetId = hashesByDatasetId;
+  }
+
+  /**
+   * Takes a snapshot of the workflows of the given datasets.
+   *
+   * @param workflowDao the database of which to take the snapshot
+   * @param datasetIds the dataset ids of which to get the workflows
+   * @param datasetIdsPerQuery the maximum number of dataset ids to send in one query
+   * @param hashFunction computes the hash of a workflow
+   * @return the snapshot
+   */
+  public static WorkflowSnapshot take(ExtendedWorkflowDao workflowDao, Set<String> datasetIds,
+      int datasetIdsPerQuery, Function<Workflow, String> hashFunction) {
+    final Map<String, String> hashesByDatasetId = new HashMap<>();
+    try (WorkflowIterator workflows = workflowDao
+        .iterateAllWorkflows(datasetIds, datasetIdsPerQuery)) {
+      while (workflows.hasNext()) {
+        final Workflow workflow = workflows.next();
+        hashesByDatasetId.put(workflow.getDatasetId(), hashFunction.apply(workflow));
+      }
+    }
+    return new WorkflowSnapshot(hashesByDatasetId);
+  }
+
+  /**
+   * @param datasetId the dataset id
+   * @return the hash of the workflow of the dataset, or null if the dataset has no workflow
+   */
+  public String getHash(String datasetId) {
+    return hashesByDatasetId.get(datasetId);
+  }
+
+  public Set<String> getDatasetIds() {
+    return hashesByDatasetId.keySet();
+  }
+
+  public int size() {
+    return hashesByDatasetId.size();
+  }
+}
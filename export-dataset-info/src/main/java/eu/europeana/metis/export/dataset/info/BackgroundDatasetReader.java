@@ -0,0 +1,97 @@
+package eu.europeana.metis.export.dataset.info;
+
+import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.dataset.reader.DatasetReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads datasets from a {@link DatasetReader} in a separate thread, so that the next batch is
+ * already being requested while the current one is processed. The datasets are handed over
+ * through a bounded queue: if the consumer falls behind, the reading thread waits. Any exception
+ * in the reading thread is rethrown to the consumer once it has consumed the datasets read before.
+ */
+public class BackgroundDatasetReader implements Iterator<Dataset>, AutoCloseable {
+
+  private static final Object END_OF_DATASETS = new Object();
+
+  private final BlockingQueue<Object> queue;
+  private final Thread readerThread;
+
+  private volatile Throwable readerException;
+  private Object nextElement;
+
+  /**
+   * Constructor. Starts reading immediately.
+   *
+   * @param datasetReader the reader from which to obtain the datasets.
+   * @param capacity the maximum number of datasets that are read ahead.
+   */
+  public BackgroundDatasetReader(DatasetReader datasetReader, int capacity) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.readerThread = new Thread(() -> readAll(datasetReader), "dataset-reader");
+    this.readerThread.setDaemon(true);
+    this.readerThread.start();
+  }
+
+  private void readAll(DatasetReader datasetReader) {
+    try {
+      while (datasetReader.hasNext()) {
+        queue.put(datasetReader.next());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      readerException = e;
+    } finally {
+      // Always mark the end, so that the consumer never waits for a thread that has stopped.
+      try {
+        queue.put(END_OF_DATASETS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextElement == null) {
+      try {
+        nextElement = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for datasets.", e);
+      }
+    }
+    if (nextElement == END_OF_DATASETS && readerException != null) {
+      if (readerException instanceof RuntimeException) {
+        throw (RuntimeException) readerException;
+      }
+      if (readerException instanceof Error) {
+        throw (Error) readerException;
+      }
+      throw new IllegalStateException("Reading the datasets failed.", readerException);
+    }
+    return nextElement != END_OF_DATASETS;
+  }
+
+  @Override
+  public Dataset next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Dataset result = (Dataset) nextElement;
+    nextElement = null;
+    return result;
+  }
+
+  /**
+   * Stops the reading thread if it is still running.
+   */
+  @Override
+  public void close() {
+    readerThread.interrupt();
+  }
+}
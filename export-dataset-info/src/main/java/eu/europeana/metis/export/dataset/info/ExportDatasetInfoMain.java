@@ -1,26 +1,27 @@
 package eu.europeana.metis.export.dataset.info;
 
-import com.opencsv.CSVWriter;
 import eu.europeana.metis.core.dataset.Dataset;
 import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
-import eu.europeana.metis.core.rest.ResponseListWrapper;
-import eu.europeana.metis.core.workflow.OrderField;
+import eu.europeana.metis.dataset.reader.DatasetReader;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.external.request.RetryPolicy;
+import eu.europeana.metis.report.ReportColumn;
+import eu.europeana.metis.report.ReportColumn.Type;
+import eu.europeana.metis.report.ReportWriter;
 import eu.europeana.metis.utils.CustomTruststoreAppender;
-import eu.europeana.metis.utils.ExternalRequestUtil;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.core.net.ssl.TrustStoreConfigurationException;
-import org.mongodb.morphia.query.FindOptions;
-import org.mongodb.morphia.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,10 +29,23 @@ public class ExportDatasetInfoMain {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ExportDatasetInfoMain.class);
 
-  private static final int DATASETS_PER_REQUEST = 20;
-
   private static final String CONFIGURATION_FILE = "application.properties";
 
+  private static final int READ_AHEAD_BATCHES = 2;
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+  private static final String GZIP_EXTENSION = ".gz";
+
+  private static final List<ReportColumn> REPORT_COLUMNS = Arrays.asList(
+      new ReportColumn("Dataset ID", Type.STRING),
+      new ReportColumn("Dataset name", Type.STRING),
+      new ReportColumn("Data provider", Type.DICTIONARY),
+      new ReportColumn("Provider", Type.DICTIONARY),
+      new ReportColumn("Country", Type.DICTIONARY),
+      new ReportColumn("Link to dataset", Type.STRING));
+
+  private static final ExternalRequestExecutor<ExternalService> EXTERNAL_REQUEST_EXECUTOR =
+      new ExternalRequestExecutor<>(ExternalService.class, new RetryPolicy(10, 1000, 60000, 2));
+
   public static void main(String[] args) throws TrustStoreConfigurationException, IOException {
 
     // Read properties
@@ -45,32 +59,52 @@ public class ExportDatasetInfoMain {
           propertiesHolder.truststorePassword);
     }
 
-    // Load datasets
-    LOGGER.info("Loading datasets:");
+    // Connect to the database
     final MongoInitializer mongoInitializer = new MongoInitializer(propertiesHolder);
     mongoInitializer.initializeMongoClient();
     final MorphiaDatastoreProvider datastoreProvider = new MorphiaDatastoreProvider(
         mongoInitializer.getMongoClient(), propertiesHolder.mongoDb);
-    final List<Dataset> datasets = getAllDatasets(datastoreProvider);
-    LOGGER.info("{} datasets loaded.", datasets.size());
-    mongoInitializer.close();
 
-    // Write to the CSV file
-    LOGGER.info("Writing to output file: {}.", propertiesHolder.targetFile);
+    // Stream the datasets to the CSV file
+    LOGGER.info("Writing datasets to output file: {}.", propertiesHolder.targetFile);
+    final DatasetReader datasetReader = new DatasetReader(datastoreProvider, null,
+        propertiesHolder.datasetsPerRequest, propertiesHolder.startAfterDatasetId,
+        batchRequest -> EXTERNAL_REQUEST_EXECUTOR.execute(ExternalService.MONGO, batchRequest));
+    int datasetCount = 0;
     try (
-        final Writer writer = Files.newBufferedWriter(Paths.get(propertiesHolder.targetFile));
-        final CSVWriter csvWriter = new CSVWriter(writer,
-            CSVWriter.DEFAULT_SEPARATOR,
-            CSVWriter.DEFAULT_QUOTE_CHARACTER,
-            CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-            CSVWriter.DEFAULT_LINE_END)
+        final BackgroundDatasetReader datasets = new BackgroundDatasetReader(datasetReader,
+            READ_AHEAD_BATCHES * propertiesHolder.datasetsPerRequest);
+        final OutputStream outputStream = createOutputStream(propertiesHolder.targetFile);
+        final ReportWriter reportWriter = propertiesHolder.targetFormat
+            .createWriter(outputStream, REPORT_COLUMNS)
     ) {
-      csvWriter.writeNext(
-          new String[]{"Dataset ID", "Dataset name", "Data provider", "Provider", "Country",
-              "Link to dataset"});
-      for (Dataset dataset : datasets) {
-        csvWriter.writeNext(createFullReportLine(dataset, propertiesHolder));
+      while (datasets.hasNext()) {
+        final Dataset dataset = datasets.next();
+        reportWriter.writeRow(createFullReportLine(dataset, propertiesHolder));
+        datasetCount++;
+        if (datasetCount % propertiesHolder.datasetsPerRequest == 0) {
+          LOGGER.info("  {} datasets written, last dataset _id: {}.", datasetCount,
+              dataset.getId());
+        }
       }
+    } finally {
+      mongoInitializer.close();
+    }
+    LOGGER.info("{} datasets written.", datasetCount);
+    EXTERNAL_REQUEST_EXECUTOR.logStatistics();
+  }
+
+  private static OutputStream createOutputStream(String targetFile) throws IOException {
+    final OutputStream outputStream = Files.newOutputStream(Paths.get(targetFile));
+    try {
+      if (targetFile.endsWith(GZIP_EXTENSION)) {
+        return new GZIPOutputStream(outputStream, OUTPUT_BUFFER_SIZE);
+      }
+      return new BufferedOutputStream(outputStream, OUTPUT_BUFFER_SIZE);
+    } catch (IOException | RuntimeException e) {
+      // The GZIP stream writes its header immediately, which may fail.
+      outputStream.close();
+      throw e;
     }
   }
 
@@ -103,28 +137,4 @@ public class ExportDatasetInfoMain {
     // Done
     return result;
   }
-
-  private static List<Dataset> getAllDatasets(MorphiaDatastoreProvider datastoreProvider) {
-    final List<Dataset> result = new ArrayList<>();
-    int nextPage = 0;
-    do {
-      final ResponseListWrapper<Dataset> responseListWrapper = new ResponseListWrapper<>();
-      responseListWrapper
-          .setResultsAndLastPage(getDatasetPage(datastoreProvider, nextPage), DATASETS_PER_REQUEST,
-              nextPage);
-      LOGGER
-          .info("  Next page: {}, {} datasets found.", nextPage, responseListWrapper.getListSize());
-      nextPage = responseListWrapper.getNextPage();
-      result.addAll(responseListWrapper.getResults());
-    } while (nextPage != -1);
-    return result;
-  }
-
-  private static List<Dataset> getDatasetPage(MorphiaDatastoreProvider datastoreProvider,
-      int page) {
-    final Query<Dataset> query = datastoreProvider.getDatastore().createQuery(Dataset.class);
-    query.order(OrderField.ID.getOrderFieldName());
-    return ExternalRequestUtil.retryableExternalRequestConnectionReset(() -> query.asList(
-        new FindOptions().skip(page * DATASETS_PER_REQUEST).limit(DATASETS_PER_REQUEST)));
-  }
 }
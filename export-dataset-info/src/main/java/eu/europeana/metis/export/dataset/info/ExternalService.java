@@ -0,0 +1,9 @@
+package eu.europeana.metis.export.dataset.info;
+
+/**
+ * The external services that this tool sends requests to. Every service has its own circuit
+ * breaker and its own request statistics.
+ */
+public enum ExternalService {
+  MONGO
+}
@@ -1,9 +1,13 @@
 package eu.europeana.metis.export.dataset.info;
 
+import eu.europeana.metis.report.ReportFormat;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Locale;
 import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.types.ObjectId;
 
 /**
  * Contains all properties that are required for execution.
@@ -21,6 +25,8 @@ public class PropertiesHolder {
   public final String mongoPassword;
   public final boolean mongoEnablessl;
   public final String mongoDb;
+  public final int datasetsPerRequest;
+  public final ObjectId startAfterDatasetId;
 
   public final String metisDatasetUriPrefix;
 
@@ -28,6 +34,7 @@ public class PropertiesHolder {
   public final String truststorePassword;
 
   public final String targetFile;
+  public final ReportFormat targetFormat;
 
   public PropertiesHolder(String configurationFileName) {
     Properties properties = new Properties();
@@ -45,6 +52,10 @@ public class PropertiesHolder {
     mongoPassword = properties.getProperty("mongo.password");
     mongoEnablessl = Boolean.parseBoolean(properties.getProperty("mongo.enableSSL"));
     mongoDb = properties.getProperty("mongo.db");
+    datasetsPerRequest = StringUtils.isNotBlank(properties.getProperty("datasets.per.request"))
+        ? Integer.parseInt(properties.getProperty("datasets.per.request")) : 100;
+    startAfterDatasetId = StringUtils.isNotBlank(properties.getProperty("start.after.dataset.id"))
+        ? new ObjectId(properties.getProperty("start.after.dataset.id").trim()) : null;
 
     metisDatasetUriPrefix = properties.getProperty("metis.dataset.uri.prefix");
 
@@ -52,5 +63,8 @@ public class PropertiesHolder {
     truststorePassword = properties.getProperty("truststore.password");
 
     targetFile = properties.getProperty("target.file");
+    targetFormat = StringUtils.isNotBlank(properties.getProperty("target.format")) ? ReportFormat
+        .valueOf(properties.getProperty("target.format").trim().toUpperCase(Locale.ENGLISH))
+        : ReportFormat.CSV;
   }
 }
@@ -0,0 +1,93 @@
+package eu.europeana.metis.external.request;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker for one external service.
+ * <p>After a number of consecutive failures the breaker opens and requests to the service are
+ * held back for a while. After that one trial request is let through: if it succeeds, the breaker
+ * closes again, otherwise it stays open for another period. This class is thread-safe.</p>
+ */
+public class CircuitBreaker {
+
+  private enum State {CLOSED, OPEN, HALF_OPEN}
+
+  private final int failureThreshold;
+  private final long openDurationInMillis;
+  private final LongSupplier clock;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures = 0;
+  private long openUntil = 0;
+  private long timesOpened = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param failureThreshold the number of consecutive failures after which the breaker opens
+   * @param openDurationInMillis how long the breaker stays open before a trial request is allowed
+   */
+  public CircuitBreaker(int failureThreshold, long openDurationInMillis) {
+    this(failureThreshold, openDurationInMillis, System::currentTimeMillis);
+  }
+
+  CircuitBreaker(int failureThreshold, long openDurationInMillis, LongSupplier clock) {
+    this.failureThreshold = failureThreshold;
+    this.openDurationInMillis = openDurationInMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * Asks permission to send a request. A request that is sent must be followed by a call to
+   * either {@link #recordSuccess()} or {@link #recordFailure()}, whatever its outcome: otherwise a
+   * trial request would leave the breaker half open and all later requests would be held back.
+   *
+   * @return 0 if the request may be sent now, or otherwise the time to wait before asking again
+   */
+  public synchronized long acquirePermission() {
+    final long now = clock.getAsLong();
+    if (state == State.CLOSED) {
+      return 0;
+    }
+    if (state == State.OPEN && now >= openUntil) {
+      state = State.HALF_OPEN;
+      return 0;
+    }
+    // Open, or half open with the trial request still running.
+    return state == State.OPEN ? openUntil - now : Math.min(1000, openDurationInMillis);
+  }
+
+  /**
+   * Registers that a request reached the service, even if the service refused it.
+   */
+  public synchronized void recordSuccess() {
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+  }
+
+  /**
+   * Registers that a request could not be completed because of a (possibly temporary) failure of
+   * the service.
+   *
+   * @return whether the breaker opened because of this failure
+   */
+  public synchronized boolean recordFailure() {
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || (state == State.CLOSED
+        && consecutiveFailures >= failureThreshold)) {
+      state = State.OPEN;
+      openUntil = clock.getAsLong() + openDurationInMillis;
+      timesOpened++;
+      return true;
+    }
+    return false;
+  }
+
+  public long getOpenDurationInMillis() {
+    return openDurationInMillis;
+  }
+
+  public synchronized long getTimesOpened() {
+    return timesOpened;
+  }
+}
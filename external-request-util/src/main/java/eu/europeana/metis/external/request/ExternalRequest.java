@@ -0,0 +1,13 @@
+package eu.europeana.metis.external.request;
+
+/**
+ * A request to an external service that may throw a checked exception.
+ *
+ * @param <R> the type of the result of the request
+ * @param <E> the type of checked exception that the request may throw
+ */
+@FunctionalInterface
+public interface ExternalRequest<R, E extends Exception> {
+
+  R execute() throws E;
+}
@@ -0,0 +1,202 @@
+package eu.europeana.metis.external.request;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends requests to external services, retrying them according to a {@link RetryPolicy} and
+ * holding them back through a {@link CircuitBreaker} per service while that service is failing.
+ * It also counts the requests, retries and the time spent per service. The services are the
+ * constants of an enum that is defined by the tool using this class. This class is thread-safe.
+ *
+ * @param <S> the enum type of the services.
+ */
+public class ExternalRequestExecutor<S extends Enum<S>> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExternalRequestExecutor.class);
+
+  private static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+  private static final long CIRCUIT_BREAKER_OPEN_DURATION_IN_MILLIS = TimeUnit.SECONDS
+      .toMillis(30);
+
+  private final RetryPolicy retryPolicy;
+  private final Class<S> serviceType;
+  private final Map<S, CircuitBreaker> circuitBreakers;
+  private final Map<S, RequestStatistics> statistics;
+
+  /**
+   * Constructor.
+   *
+   * @param serviceType the enum type of the services
+   * @param retryPolicy the retry policy for all requests
+   */
+  public ExternalRequestExecutor(Class<S> serviceType, RetryPolicy retryPolicy) {
+    this(serviceType, retryPolicy, CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+        CIRCUIT_BREAKER_OPEN_DURATION_IN_MILLIS);
+  }
+
+  ExternalRequestExecutor(Class<S> serviceType, RetryPolicy retryPolicy,
+      int circuitBreakerFailureThreshold, long circuitBreakerOpenDurationInMillis) {
+    this.serviceType = serviceType;
+    this.retryPolicy = retryPolicy;
+    this.circuitBreakers = new EnumMap<>(serviceType);
+    this.statistics = new EnumMap<>(serviceType);
+    for (S service : serviceType.getEnumConstants()) {
+      circuitBreakers.put(service, new CircuitBreaker(circuitBreakerFailureThreshold,
+          circuitBreakerOpenDurationInMillis));
+      statistics.put(service, new RequestStatistics());
+    }
+  }
+
+  /**
+   * Executes a request that doesn't throw checked exceptions.
+   *
+   * @param service the service the request is sent to
+   * @param supplier the request
+   * @param <R> the type of the result
+   * @return the result of the request
+   */
+  public <R> R execute(S service, Supplier<R> supplier) {
+    return this.<R, RuntimeException>executeChecked(service, supplier::get);
+  }
+
+  /**
+   * Executes a request, retrying it as long as it fails with a retryable exception and the retry
+   * policy allows another attempt. If the request ultimately fails, the last exception is thrown.
+   * If the thread is interrupted while waiting, the last exception is thrown as well (and the
+   * interrupted flag is set).
+   *
+   * @param service the service the request is sent to
+   * @param request the request
+   * @param <R> the type of the result
+   * @param <E> the type of checked exception that the request may throw
+   * @return the result of the request
+   * @throws E if the request ultimately fails with this exception
+   */
+  public <R, E extends Exception> R executeChecked(S service,
+      ExternalRequest<R, E> request)
+      throws E {
+    final CircuitBreaker circuitBreaker = circuitBreakers.get(service);
+    final RequestStatistics serviceStatistics = statistics.get(service);
+    serviceStatistics.requests.incrementAndGet();
+    int attempt = 0;
+    while (true) {
+
+      // Wait while the service is considered down.
+      long waitTime;
+      while ((waitTime = circuitBreaker.acquirePermission()) > 0) {
+        if (!sleep(waitTime)) {
+          throw new IllegalStateException(
+              String.format("Interrupted while waiting for %s to become available.", service));
+        }
+      }
+
+      // Perform the attempt.
+      attempt++;
+      serviceStatistics.attempts.incrementAndGet();
+      final long startTime = System.nanoTime();
+      try {
+        final R result = request.execute();
+        serviceStatistics.addLatency(System.nanoTime() - startTime);
+        circuitBreaker.recordSuccess();
+        return result;
+      } catch (Exception e) {
+        serviceStatistics.addLatency(System.nanoTime() - startTime);
+        serviceStatistics.failures.incrementAndGet();
+
+        // Check whether we can retry.
+        final boolean retryable = retryPolicy.isRetryable(e);
+        if (retryable && circuitBreaker.recordFailure()) {
+          LOGGER.warn("Too many failures for {}: holding back requests for {}ms.", service,
+              circuitBreaker.getOpenDurationInMillis());
+        } else if (!retryable) {
+          circuitBreaker.recordSuccess();
+        }
+        if (!retryable || !retryPolicy.hasAttemptsLeft(attempt)) {
+          throw ExternalRequestExecutor.<E>castException(e);
+        }
+
+        // Wait before retrying.
+        final long delay = retryPolicy.getDelayInMillis(attempt);
+        LOGGER.warn(String.format("Request to %s has failed (attempt %d)! Retrying in %sms",
+            service, attempt, delay), e);
+        serviceStatistics.retries.incrementAndGet();
+        if (!sleep(delay)) {
+          throw ExternalRequestExecutor.<E>castException(e);
+        }
+      } catch (Error e) {
+        // Not retried, but recorded, so that a trial request never leaves the breaker half open.
+        serviceStatistics.addLatency(System.nanoTime() - startTime);
+        serviceStatistics.failures.incrementAndGet();
+        if (circuitBreaker.recordFailure()) {
+          LOGGER.warn("Too many failures for {}: holding back requests for {}ms.", service,
+              circuitBreaker.getOpenDurationInMillis());
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Logs the request statistics of all services that received requests.
+   */
+  public void logStatistics() {
+    for (S service : serviceType.getEnumConstants()) {
+      final RequestStatistics serviceStatistics = statistics.get(service);
+      final long attempts = serviceStatistics.attempts.get();
+      if (attempts == 0) {
+        continue;
+      }
+      LOGGER.info(
+          "Requests to {}: {} requests, {} attempts, {} failures, {} retries, circuit breaker opened {} times, average latency {}ms, maximum latency {}ms.",
+          service, serviceStatistics.requests.get(), attempts, serviceStatistics.failures.get(),
+          serviceStatistics.retries.get(), circuitBreakers.get(service).getTimesOpened(),
+          TimeUnit.NANOSECONDS.toMillis(serviceStatistics.totalLatency.get() / attempts),
+          TimeUnit.NANOSECONDS.toMillis(serviceStatistics.maxLatency.get()));
+    }
+  }
+
+  long getTimesOpened(S service) {
+    return circuitBreakers.get(service).getTimesOpened();
+  }
+
+  private static boolean sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException ex) {
+      LOGGER.warn("Thread was interrupted while waiting for retry.", ex);
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E extends Exception> E castException(Exception exception) {
+    // The request can only throw exceptions of type E or runtime exceptions.
+    if (exception instanceof RuntimeException) {
+      throw (RuntimeException) exception;
+    }
+    return (E) exception;
+  }
+
+  private static class RequestStatistics {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    void addLatency(long latencyInNanos) {
+      totalLatency.addAndGet(latencyInNanos);
+      maxLatency.accumulateAndGet(latencyInNanos, Math::max);
+    }
+  }
+}
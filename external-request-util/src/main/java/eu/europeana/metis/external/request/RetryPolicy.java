@@ -0,0 +1,115 @@
+package eu.europeana.metis.external.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed request is retried and how long to wait before doing so.
+ * <p>The wait time grows exponentially with every attempt up to a maximum, and a random jitter
+ * of up to half the wait time is subtracted so that concurrent callers don't retry in lockstep.
+ * Whether an exception is retried is decided by the rules added with {@link #retryOn(Class)} and
+ * {@link #abortOn(Class)}: the exception itself and then each of its causes is checked against
+ * the rules in the order they were added, and the first matching rule wins. If no rule matches,
+ * the exception is retried.</p>
+ */
+public class RetryPolicy {
+
+  private final int maxAttempts;
+  private final long initialDelayInMillis;
+  private final long maxDelayInMillis;
+  private final double multiplier;
+  private final List<ExceptionRule> exceptionRules = new ArrayList<>();
+
+  /**
+   * Constructor.
+   *
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @param initialDelayInMillis the wait time before the first retry
+   * @param maxDelayInMillis the maximum wait time between two attempts
+   * @param multiplier the factor with which the wait time grows after every attempt
+   */
+  public RetryPolicy(int maxAttempts, long initialDelayInMillis, long maxDelayInMillis,
+      double multiplier) {
+    if (maxAttempts < 1 || initialDelayInMillis < 0 || maxDelayInMillis < initialDelayInMillis
+        || multiplier < 1) {
+      throw new IllegalArgumentException("Retry policy is not properly configured.");
+    }
+    this.maxAttempts = maxAttempts;
+    this.initialDelayInMillis = initialDelayInMillis;
+    this.maxDelayInMillis = maxDelayInMillis;
+    this.multiplier = multiplier;
+  }
+
+  /**
+   * Retry requests that fail with the given exception type (or with an exception caused by it).
+   *
+   * @param exceptionType the exception type
+   * @return this policy
+   */
+  public RetryPolicy retryOn(Class<? extends Throwable> exceptionType) {
+    exceptionRules.add(new ExceptionRule(exceptionType, true));
+    return this;
+  }
+
+  /**
+   * Don't retry requests that fail with the given exception type (or with an exception caused by
+   * it). This is meant for failures that will never succeed, like a client error.
+   *
+   * @param exceptionType the exception type
+   * @return this policy
+   */
+  public RetryPolicy abortOn(Class<? extends Throwable> exceptionType) {
+    exceptionRules.add(new ExceptionRule(exceptionType, false));
+    return this;
+  }
+
+  /**
+   * @param exception the exception with which a request failed
+   * @return whether the request should be retried
+   */
+  public boolean isRetryable(Throwable exception) {
+    for (Throwable current = exception; current != null; current = current.getCause()) {
+      for (ExceptionRule rule : exceptionRules) {
+        if (rule.exceptionType.isInstance(current)) {
+          return rule.retryable;
+        }
+      }
+      if (current.getCause() == current) {
+        break;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param attempt the number of the attempt that failed (starting with 1)
+   * @return whether another attempt is allowed
+   */
+  public boolean hasAttemptsLeft(int attempt) {
+    return attempt < maxAttempts;
+  }
+
+  /**
+   * @param attempt the number of the attempt that failed (starting with 1)
+   * @return the time to wait before the next attempt
+   */
+  public long getDelayInMillis(int attempt) {
+    final double exponentialDelay =
+        initialDelayInMillis * Math.pow(multiplier, Math.min(attempt - 1, 62));
+    final long delay = (long) Math.min(maxDelayInMillis, exponentialDelay);
+    final long jitter = delay / 2 > 0 ? ThreadLocalRandom.current().nextLong(delay / 2 + 1) : 0;
+    return delay - jitter;
+  }
+
+  private static class ExceptionRule {
+
+    private final Class<? extends Throwable> exceptionType;
+    private final boolean retryable;
+
+    ExceptionRule(Class<? extends Throwable> exceptionType, boolean retryable) {
+      this.exceptionType = exceptionType;
+      this.retryable = retryable;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package eu.europeana.metis.external.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private static final int FAILURE_THRESHOLD = 3;
+  private static final long OPEN_DURATION = 10000;
+
+  private final AtomicLong now = new AtomicLong(1000000);
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker(FAILURE_THRESHOLD,
+      OPEN_DURATION, now::get);
+
+  @Test
+  public void testOpensAfterConsecutiveFailures() {
+    assertFalse(circuitBreaker.recordFailure());
+    assertFalse(circuitBreaker.recordFailure());
+    assertEquals(0, circuitBreaker.acquirePermission());
+    assertTrue(circuitBreaker.recordFailure());
+    assertEquals(OPEN_DURATION, circuitBreaker.acquirePermission());
+    now.addAndGet(4000);
+    assertEquals(OPEN_DURATION - 4000, circuitBreaker.acquirePermission());
+    assertEquals(1, circuitBreaker.getTimesOpened());
+  }
+
+  @Test
+  public void testSuccessResetsFailureCount() {
+    circuitBreaker.recordFailure();
+    circuitBreaker.recordFailure();
+    circuitBreaker.recordSuccess();
+    assertFalse(circuitBreaker.recordFailure());
+    assertFalse(circuitBreaker.recordFailure());
+    assertEquals(0, circuitBreaker.acquirePermission());
+  }
+
+  @Test
+  public void testHalfOpenLetsOneTrialRequestThrough() {
+    open();
+    now.addAndGet(OPEN_DURATION);
+
+    // The first request is the trial request: others wait while it runs.
+    assertEquals(0, circuitBreaker.acquirePermission());
+    final long waitTime = circuitBreaker.acquirePermission();
+    assertTrue(waitTime > 0);
+    assertTrue(waitTime <= 1000);
+  }
+
+  @Test
+  public void testHalfOpenClosesAfterSuccessfulTrial() {
+    open();
+    now.addAndGet(OPEN_DURATION);
+    assertEquals(0, circuitBreaker.acquirePermission());
+    circuitBreaker.recordSuccess();
+    assertEquals(0, circuitBreaker.acquirePermission());
+    assertEquals(0, circuitBreaker.acquirePermission());
+    assertEquals(1, circuitBreaker.getTimesOpened());
+  }
+
+  @Test
+  public void testHalfOpenReopensAfterFailedTrial() {
+    open();
+    now.addAndGet(OPEN_DURATION);
+    assertEquals(0, circuitBreaker.acquirePermission());
+
+    // One failure of the trial request is enough to open the breaker again.
+    assertTrue(circuitBreaker.recordFailure());
+    assertEquals(OPEN_DURATION, circuitBreaker.acquirePermission());
+    assertEquals(2, circuitBreaker.getTimesOpened());
+  }
+
+  private void open() {
+    for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+      circuitBreaker.recordFailure();
+    }
+    assertTrue(circuitBreaker.acquirePermission() > 0);
+  }
+}
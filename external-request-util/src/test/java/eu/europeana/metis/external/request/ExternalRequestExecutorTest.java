@@ -0,0 +1,144 @@
+package eu.europeana.metis.external.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ExternalRequestExecutorTest {
+
+  private enum TestService {FIRST, SECOND}
+
+  @Test
+  public void testRetriesUntilSuccess() {
+    final ExternalRequestExecutor<TestService> executor = new ExternalRequestExecutor<>(
+        TestService.class, new RetryPolicy(5, 0, 0, 1));
+    final AtomicInteger attempts = new AtomicInteger();
+    final String result = executor.execute(TestService.FIRST, () -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new IllegalStateException("Temporary failure");
+      }
+      return "result";
+    });
+    assertEquals("result", result);
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void testThrowsLastExceptionWhenAttemptsRunOut() {
+    final ExternalRequestExecutor<TestService> executor = new ExternalRequestExecutor<>(
+        TestService.class, new RetryPolicy(3, 0, 0, 1));
+    final AtomicInteger attempts = new AtomicInteger();
+    try {
+      executor.executeChecked(TestService.FIRST, () -> {
+        throw new IOException("Failure " + attempts.incrementAndGet());
+      });
+      fail("Expected an exception.");
+    } catch (IOException e) {
+      assertEquals("Failure 3", e.getMessage());
+    }
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void testAbortPolicyStopsAfterFirstAttempt() {
+    final ExternalRequestExecutor<TestService> executor = new ExternalRequestExecutor<>(
+        TestService.class, new RetryPolicy(5, 0, 0, 1).abortOn(IllegalArgumentException.class));
+    final AtomicInteger attempts = new AtomicInteger();
+    final IllegalArgumentException exception = new IllegalArgumentException("Client error");
+    try {
+      executor.execute(TestService.FIRST, () -> {
+        attempts.incrementAndGet();
+        throw exception;
+      });
+      fail("Expected an exception.");
+    } catch (IllegalArgumentException e) {
+      assertSame(exception, e);
+    }
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  public void testAbortedRequestsDontOpenCircuitBreaker() {
+    final ExternalRequestExecutor<TestService> executor = new ExternalRequestExecutor<>(
+        TestService.class, new RetryPolicy(1, 0, 0, 1).abortOn(IllegalArgumentException.class),
+        2, 60000);
+    for (int i = 0; i < 5; i++) {
+      try {
+        executor.execute(TestService.FIRST, () -> {
+          throw new IllegalArgumentException("Client error");
+        });
+      } catch (IllegalArgumentException e) {
+        // Expected.
+      }
+    }
+    assertEquals(0, executor.getTimesOpened(TestService.FIRST));
+  }
+
+  @Test
+  public void testCircuitBreakerIsPerService() {
+    final ExternalRequestExecutor<TestService> executor = new ExternalRequestExecutor<>(
+        TestService.class, new RetryPolicy(2, 0, 0, 1), 2, 60000);
+    try {
+      executor.execute(TestService.FIRST, () -> {
+        throw new IllegalStateException("Service down");
+      });
+      fail("Expected an exception.");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+    assertEquals(1, executor.getTimesOpened(TestService.FIRST));
+
+    // The other service is not held back.
+    assertEquals("result", executor.execute(TestService.SECOND, () -> "result"));
+    assertEquals(0, executor.getTimesOpened(TestService.SECOND));
+  }
+
+  @Test
+  public void testWaitsForHalfOpenCircuitBreaker() {
+    final ExternalRequestExecutor<TestService> executor = new ExternalRequestExecutor<>(
+        TestService.class, new RetryPolicy(3, 0, 0, 1), 1, 50);
+    final AtomicInteger attempts = new AtomicInteger();
+    final long start = System.nanoTime();
+    final String result = executor.execute(TestService.FIRST, () -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw new IllegalStateException("Service down");
+      }
+      return "result";
+    });
+
+    // The second attempt was the trial request after the breaker had been open.
+    assertEquals("result", result);
+    assertEquals(2, attempts.get());
+    assertEquals(1, executor.getTimesOpened(TestService.FIRST));
+    assertTrue(System.nanoTime() - start >= 50_000_000L);
+  }
+
+  @Test
+  public void testErrorInTrialRequestReopensCircuitBreaker() {
+    final ExternalRequestExecutor<TestService> executor = new ExternalRequestExecutor<>(
+        TestService.class, new RetryPolicy(1, 0, 0, 1), 1, 50);
+    try {
+      executor.execute(TestService.FIRST, () -> {
+        throw new IllegalStateException("Service down");
+      });
+      fail("Expected an exception.");
+    } catch (IllegalStateException e) {
+      // Expected: the breaker is now open.
+    }
+    try {
+      executor.execute(TestService.FIRST, () -> {
+        throw new StackOverflowError();
+      });
+      fail("Expected an error.");
+    } catch (StackOverflowError e) {
+      // Expected: the failed trial request opens the breaker again.
+    }
+    assertEquals(2, executor.getTimesOpened(TestService.FIRST));
+    assertEquals("result", executor.execute(TestService.FIRST, () -> "result"));
+  }
+}
@@ -0,0 +1,99 @@
+package eu.europeana.metis.external.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+  @Test
+  public void testBackoffGrowsUpToMaximum() {
+    final RetryPolicy retryPolicy = new RetryPolicy(10, 1000, 8000, 2);
+    final long[] expectedDelays = {1000, 2000, 4000, 8000, 8000, 8000};
+    for (int attempt = 1; attempt <= expectedDelays.length; attempt++) {
+      final long delay = retryPolicy.getDelayInMillis(attempt);
+      final long expectedDelay = expectedDelays[attempt - 1];
+      assertTrue(delay <= expectedDelay);
+      assertTrue(delay >= expectedDelay / 2);
+    }
+  }
+
+  @Test
+  public void testBackoffDoesNotOverflow() {
+    final RetryPolicy retryPolicy = new RetryPolicy(Integer.MAX_VALUE, 1000, 60000, 2);
+    final long delay = retryPolicy.getDelayInMillis(Integer.MAX_VALUE);
+    assertTrue(delay <= 60000);
+    assertTrue(delay >= 30000);
+  }
+
+  @Test
+  public void testJitterVariesWithinHalfTheDelay() {
+    final RetryPolicy retryPolicy = new RetryPolicy(10, 1000, 1000, 1);
+    long minimum = Long.MAX_VALUE;
+    long maximum = Long.MIN_VALUE;
+    for (int i = 0; i < 1000; i++) {
+      final long delay = retryPolicy.getDelayInMillis(1);
+      minimum = Math.min(minimum, delay);
+      maximum = Math.max(maximum, delay);
+    }
+    assertTrue(minimum >= 500);
+    assertTrue(maximum <= 1000);
+    assertTrue(minimum < maximum);
+  }
+
+  @Test
+  public void testNoJitterWithoutDelay() {
+    final RetryPolicy retryPolicy = new RetryPolicy(10, 0, 0, 1);
+    assertEquals(0, retryPolicy.getDelayInMillis(1));
+    assertEquals(0, retryPolicy.getDelayInMillis(5));
+  }
+
+  @Test
+  public void testAttemptsLeft() {
+    final RetryPolicy retryPolicy = new RetryPolicy(3, 0, 0, 1);
+    assertTrue(retryPolicy.hasAttemptsLeft(1));
+    assertTrue(retryPolicy.hasAttemptsLeft(2));
+    assertFalse(retryPolicy.hasAttemptsLeft(3));
+  }
+
+  @Test
+  public void testRetryableWithoutRules() {
+    final RetryPolicy retryPolicy = new RetryPolicy(3, 0, 0, 1);
+    assertTrue(retryPolicy.isRetryable(new IllegalStateException()));
+  }
+
+  @Test
+  public void testAbortOnExceptionAndCause() {
+    final RetryPolicy retryPolicy = new RetryPolicy(3, 0, 0, 1)
+        .abortOn(IllegalArgumentException.class);
+    assertFalse(retryPolicy.isRetryable(new NumberFormatException()));
+    assertFalse(retryPolicy
+        .isRetryable(new IllegalStateException(new IllegalArgumentException("cause"))));
+    assertTrue(retryPolicy.isRetryable(new IllegalStateException()));
+  }
+
+  @Test
+  public void testFirstMatchingRuleWins() {
+    final RetryPolicy retryPolicy = new RetryPolicy(3, 0, 0, 1)
+        .retryOn(UncheckedIOException.class).abortOn(IOException.class);
+
+    // The exception itself is checked against the rules before its cause.
+    assertTrue(retryPolicy.isRetryable(new UncheckedIOException(new IOException())));
+    assertFalse(retryPolicy.isRetryable(new IOException()));
+    assertFalse(retryPolicy.isRetryable(new IllegalStateException(new IOException())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoAttempts() {
+    new RetryPolicy(0, 0, 0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaximumDelayBelowInitialDelay() {
+    new RetryPolicy(3, 1000, 500, 2);
+  }
+}
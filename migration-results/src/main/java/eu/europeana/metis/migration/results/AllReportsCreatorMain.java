@@ -0,0 +1,46 @@
+package eu.europeana.metis.migration.results;
+
+import eu.europeana.metis.migration.results.SkipFileCreatorMain.SkipFileDefinition;
+import eu.europeana.metis.migration.results.SkipFileCreatorMain.StatusListingDefinition;
+import eu.europeana.metis.migration.results.model.MigrationHistory;
+import eu.europeana.metis.migration.results.model.MigrationResults;
+import eu.europeana.metis.migration.results.report.ReportDefinition;
+import eu.europeana.metis.migration.results.report.ReportEngine;
+import eu.europeana.metis.migration.results.report.ReportStatistics;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class creates all reports after a batch in one go: the skip files with the statistics
+ * (listing the unsuccessful datasets), the batch reports, the invalidated results report and the name change report.
+ * All runs are parsed once, and the reports on the same results are computed together in one
+ * traversal of the results.
+ */
+public class AllReportsCreatorMain {
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+
+    // Parse all runs once: the reports are based on different windows of the history.
+    final MigrationHistory history = MigrationResultParser.parseHistory();
+
+    // The skip files, the statistics and the name change report are based on all results.
+    final MigrationResults allResults = history.getMigrationResults(
+        MigrationResultParser.PRE_HARVEST_RUN_ID, MigrationResultParser.FUTURE_RUN_ID);
+    final List<SkipFileDefinition> skipFiles = SkipFileCreatorMain.createSkipFileDefinitions();
+    final StatusListingDefinition statusListing = new StatusListingDefinition();
+    final List<ReportDefinition> definitions = new ArrayList<>(skipFiles);
+    definitions.add(statusListing);
+    final ReportStatistics statistics = new ReportEngine(definitions).run(allResults);
+    SkipFileCreatorMain.printStatistics(statistics, statusListing, skipFiles, System.out);
+    NameChangeListerMain.createReport(allResults);
+
+    // The batch reports are based on the results of the batch.
+    final MigrationResults batchResults = history
+        .getMigrationResults(BatchReportCreatorMain.FROM_RUN, BatchReportCreatorMain.TO_RUN);
+    new ReportEngine(BatchReportCreatorMain.createReportDefinitions()).run(batchResults);
+
+    // The invalidated results report compares the results before and after the split run.
+    InvalidatedResultsListerMain.createReport(history);
+  }
+}
@@ -1,95 +1,103 @@
 package eu.europeana.metis.migration.results;
 
-import com.opencsv.CSVWriter;
+import eu.europeana.metis.migration.results.model.MigrationResult;
+import eu.europeana.metis.migration.results.model.MigrationResult.ResultStatus;
+import eu.europeana.metis.migration.results.model.MigrationResults;
+import eu.europeana.metis.migration.results.model.PluginType;
+import eu.europeana.metis.migration.results.report.DatasetResults;
+import eu.europeana.metis.migration.results.report.FileReportDefinition;
+import eu.europeana.metis.migration.results.report.ReportDefinition;
+import eu.europeana.metis.migration.results.report.ReportEngine;
+import eu.europeana.metis.report.ReportColumn;
+import eu.europeana.metis.report.ReportColumn.Type;
+import eu.europeana.metis.report.ReportFormat;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.apache.solr.client.solrj.util.ClientUtils;
-import eu.europeana.metis.migration.results.model.MigrationResult;
-import eu.europeana.metis.migration.results.model.MigrationResult.ResultStatus;
-import eu.europeana.metis.migration.results.model.MigrationResults;
-import eu.europeana.metis.migration.results.model.PluginType;
 
 /**
  * This class provides a report on a given batch. A full report and an error report.
  */
 public class BatchReportCreatorMain {
 
-  private static final String FULL_REPORT = "/home/jochen/migration/new_batch_report/full_report.csv";
-  private static final String ERROR_REPORT = "/home/jochen/migration/new_batch_report/error_report.csv";
+  private static final String FULL_REPORT = "/home/jochen/migration/new_batch_report/full_report";
+  private static final String ERROR_REPORT = "/home/jochen/migration/new_batch_report/error_report";
+
+  // Change this: the format in which the reports are written (determines the file extension).
+  private static final ReportFormat REPORT_FORMAT = ReportFormat.CSV;
+
+  private static final List<ReportColumn> FULL_REPORT_COLUMNS = Arrays.asList(
+      new ReportColumn("ID", Type.STRING),
+      new ReportColumn("Name", Type.STRING),
+      new ReportColumn("Harvest status", Type.DICTIONARY),
+      new ReportColumn("Record count", Type.LONG),
+      new ReportColumn("Failed during harvesting", Type.LONG),
+      new ReportColumn("Preview status", Type.DICTIONARY),
+      new ReportColumn("Preview URI", Type.STRING));
+
+  private static final List<ReportColumn> ERROR_REPORT_COLUMNS = Arrays.asList(
+      new ReportColumn("ID", Type.STRING),
+      new ReportColumn("Name", Type.STRING),
+      new ReportColumn("Run", Type.DICTIONARY),
+      new ReportColumn("Record count", Type.LONG),
+      new ReportColumn("Harvest status", Type.DICTIONARY),
+      new ReportColumn("Preview status", Type.DICTIONARY),
+      new ReportColumn("Failed records", Type.LONG),
+      new ReportColumn("Comments", Type.STRING));
 
   private static final String URL_FORMAT = "https://metis-preview-portal.eanadev.org/portal/en/search?q=edm_datasetName:%s";
 
   // Change this: add different run IDs after each batch. Note: it is inclusive.
-  private static final String FROM_RUN = MigrationResultParser.BATCH_6_FIRST_RUN_ID;
+  static final String FROM_RUN = MigrationResultParser.BATCH_6_FIRST_RUN_ID;
   // Change this: add different run IDs after each batch. Note: it is exclusive.
-  private static final String TO_RUN = MigrationResultParser.BATCH_7_FIRST_RUN_ID;
+  static final String TO_RUN = MigrationResultParser.BATCH_7_FIRST_RUN_ID;
 
-  public static void main(String[] args) throws IOException {
+  public static void main(String[] args) throws IOException, InterruptedException {
 
     // Collect the migration model and dataset info
     final MigrationResults migrationResults = MigrationResultParser.parse(FROM_RUN, TO_RUN);
-    final Map<String, MigrationResult> harvested = migrationResults
-        .getMigrationResults(PluginType.OAIPMH_HARVEST);
-    final Map<String, MigrationResult> indexedToPreview = migrationResults
-        .getMigrationResults(PluginType.PREVIEW);
-    final List<String> processedDatasets = Stream
-        .concat(harvested.keySet().stream(), indexedToPreview.keySet().stream()).distinct().sorted()
-        .collect(Collectors.toList());
-
-    // Write the model to the full report.
-    try (
-        final Writer writer = Files.newBufferedWriter(Paths.get(FULL_REPORT));
-        final CSVWriter csvWriter = new CSVWriter(writer,
-            CSVWriter.DEFAULT_SEPARATOR,
-            CSVWriter.DEFAULT_QUOTE_CHARACTER,
-            CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-            CSVWriter.DEFAULT_LINE_END)
-    ) {
-      csvWriter.writeNext(
-          new String[]{"ID", "Name", "Harvest status", "Record count",
-              "Failed during harvesting", "Preview status", "Preview URI"});
-      for (String datasetId : processedDatasets) {
-        csvWriter.writeNext(
-            createFullReportLine(datasetId, harvested.get(datasetId),
-                indexedToPreview.get(datasetId)));
-      }
+
+    // Write the model to the full report and the error report.
+    new ReportEngine(createReportDefinitions()).run(migrationResults);
+  }
+
+  // The full report and the error report. Both only cover datasets that were harvested or indexed
+  // to preview.
+  static List<ReportDefinition> createReportDefinitions() {
+    return Arrays.asList(
+        new FileReportDefinition(FULL_REPORT, REPORT_FORMAT, FULL_REPORT_COLUMNS,
+            BatchReportCreatorMain::createFullReportLines),
+        new FileReportDefinition(ERROR_REPORT, REPORT_FORMAT, ERROR_REPORT_COLUMNS,
+            BatchReportCreatorMain::createErrorReportLines));
+  }
+
+  private static List<String[]> createFullReportLines(DatasetResults results) {
+    if (results.getResult(PluginType.OAIPMH_HARVEST) == null
+        && results.getResult(PluginType.PREVIEW) == null) {
+      return Collections.emptyList();
     }
+    return Collections.singletonList(createFullReportLine(results));
+  }
 
-    // Write the model to the error report.
-    try (
-        final Writer writer = Files.newBufferedWriter(Paths.get(ERROR_REPORT));
-        final CSVWriter csvWriter = new CSVWriter(writer,
-            CSVWriter.DEFAULT_SEPARATOR,
-            CSVWriter.DEFAULT_QUOTE_CHARACTER,
-            CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-            CSVWriter.DEFAULT_LINE_END)
-    ) {
-      csvWriter.writeNext(
-          new String[]{"ID", "Name", "Run", "Record count", "Harvest status", "Preview status",
-              "Failed records", "Comments"});
-      for (String datasetId : processedDatasets) {
-        final MigrationResult harvest = harvested.get(datasetId);
-        final MigrationResult indexToPreview = indexedToPreview.get(datasetId);
-        if ((harvest != null && !harvest.wasSuccessful())
-            || (indexToPreview != null && !indexToPreview.wasSuccessful())) {
-          csvWriter.writeNext(createErrorReportLine(datasetId, harvest, indexToPreview));
-        }
-      }
+  private static List<String[]> createErrorReportLines(DatasetResults results) {
+    final MigrationResult harvest = results.getResult(PluginType.OAIPMH_HARVEST);
+    final MigrationResult indexToPreview = results.getResult(PluginType.PREVIEW);
+    if ((harvest != null && !results.wasSuccessful(PluginType.OAIPMH_HARVEST))
+        || (indexToPreview != null && !results.wasSuccessful(PluginType.PREVIEW))) {
+      return Collections.singletonList(createErrorReportLine(results));
     }
+    return Collections.emptyList();
   }
 
-  private static String[] createErrorReportLine(String datasetId, MigrationResult harvest,
-      MigrationResult indexToPreview) {
+  private static String[] createErrorReportLine(DatasetResults results) {
+    final String datasetId = results.getDatasetId();
+    final MigrationResult harvest = results.getResult(PluginType.OAIPMH_HARVEST);
+    final MigrationResult indexToPreview = results.getResult(PluginType.PREVIEW);
     final String[] result = new String[7];
     Arrays.fill(result, "");
     result[0] = datasetId;
@@ -98,18 +106,18 @@ public class BatchReportCreatorMain {
     result[2] = indexToPreview != null ? indexToPreview.getRunId() : harvest.getRunId();
     result[3] = harvest == null ? indexToPreview.getProcessedRecords().toString()
         : harvest.getProcessedRecords().toString();
-    if (ResultStatus.COMPLETED_WITH_ERRORS.test(harvest)) {
+    if (results.hasStatus(PluginType.OAIPMH_HARVEST, ResultStatus.COMPLETED_WITH_ERRORS)) {
       result[4] = "COMPLETED_WITH_ERRORS";
       result[6] = harvest.getErrorRecords().toString();
-    } else if (ResultStatus.DID_NOT_END_NORMALLY.test(harvest)) {
+    } else if (results.hasStatus(PluginType.OAIPMH_HARVEST, ResultStatus.DID_NOT_END_NORMALLY)) {
       result[4] = "FAILED";
     } else if (harvest != null) {
       result[4] = "SUCCEEDED";
     }
-    if (ResultStatus.COMPLETED_WITH_ERRORS.test(indexToPreview)) {
+    if (results.hasStatus(PluginType.PREVIEW, ResultStatus.COMPLETED_WITH_ERRORS)) {
       result[5] = "COMPLETED_WITH_ERRORS";
       result[6] = indexToPreview.getErrorRecords().toString();
-    } else if (ResultStatus.DID_NOT_END_NORMALLY.test(indexToPreview)) {
+    } else if (results.hasStatus(PluginType.PREVIEW, ResultStatus.DID_NOT_END_NORMALLY)) {
       result[5] = "FAILED";
     } else if (indexToPreview != null) {
       result[5] = "SUCCEEDED";
@@ -117,8 +125,10 @@ public class BatchReportCreatorMain {
     return result;
   }
 
-  private static String[] createFullReportLine(String datasetId, MigrationResult harvest,
-      MigrationResult indexToPreview) throws UnsupportedEncodingException {
+  private static String[] createFullReportLine(DatasetResults results) {
+    final String datasetId = results.getDatasetId();
+    final MigrationResult harvest = results.getResult(PluginType.OAIPMH_HARVEST);
+    final MigrationResult indexToPreview = results.getResult(PluginType.PREVIEW);
 
     // Create result and set id and name.
     final String[] result = new String[7];
@@ -130,9 +140,10 @@ public class BatchReportCreatorMain {
         : harvest.getProcessedRecords().toString();
 
     // Set harvest info
-    if (harvest != null && !ResultStatus.DID_NOT_END_NORMALLY.test(harvest)) {
+    final ResultStatus harvestStatus = results.getStatus(PluginType.OAIPMH_HARVEST);
+    if (harvest != null && harvestStatus != ResultStatus.DID_NOT_END_NORMALLY) {
       // In case we have a valid result
-      result[2] = ResultStatus.COMPLETED_WITH_ERRORS.test(harvest) ? "COMPLETED_WITH_ERRORS"
+      result[2] = harvestStatus == ResultStatus.COMPLETED_WITH_ERRORS ? "COMPLETED_WITH_ERRORS"
           : "SUCCEEDED";
       result[4] = harvest.getErrorRecords().toString();
     } else if (harvest != null) {
@@ -141,8 +152,9 @@ public class BatchReportCreatorMain {
     }
 
     // Set index to preview info
-    if (indexToPreview != null && !ResultStatus.DID_NOT_END_NORMALLY.test(indexToPreview)) {
-      result[5] = ResultStatus.COMPLETED_WITH_ERRORS.test(indexToPreview) ? "COMPLETED_WITH_ERRORS"
+    final ResultStatus previewStatus = results.getStatus(PluginType.PREVIEW);
+    if (indexToPreview != null && previewStatus != ResultStatus.DID_NOT_END_NORMALLY) {
+      result[5] = previewStatus == ResultStatus.COMPLETED_WITH_ERRORS ? "COMPLETED_WITH_ERRORS"
           : "SUCCEEDED";
       result[6] = createUrl(datasetId);
     } else if (indexToPreview != null) {
@@ -153,8 +165,12 @@ public class BatchReportCreatorMain {
     return result;
   }
 
-  private static String createUrl(String datasetId) throws UnsupportedEncodingException {
+  private static String createUrl(String datasetId) {
     final String query = ClientUtils.escapeQueryChars(datasetId + "_") + "*";
-    return String.format(URL_FORMAT, URLEncoder.encode(query, StandardCharsets.UTF_8.name()));
+    try {
+      return String.format(URL_FORMAT, URLEncoder.encode(query, StandardCharsets.UTF_8.name()));
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException("UTF-8 is not supported.", e);
+    }
   }
 }
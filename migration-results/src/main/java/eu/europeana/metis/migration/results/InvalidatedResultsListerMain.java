@@ -1,29 +1,29 @@
 package eu.europeana.metis.migration.results;
 
 import com.opencsv.CSVWriter;
+import eu.europeana.metis.migration.results.model.MigrationHistory;
 import eu.europeana.metis.migration.results.model.MigrationResult;
 import eu.europeana.metis.migration.results.model.MigrationResult.ResultStatus;
-import eu.europeana.metis.migration.results.model.MigrationResults;
 import eu.europeana.metis.migration.results.model.PluginType;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Map;
 
 public class InvalidatedResultsListerMain {
 
   private static final String INVALIDATED_REPORT = "/home/jochen/migration/new_batch_report/invalidated_report.csv";
 
-  private static final String SPLIT_RUN = MigrationResultParser.BATCH_6_FIRST_RUN_ID;
+  static final String SPLIT_RUN = MigrationResultParser.BATCH_6_FIRST_RUN_ID;
 
   public static void main(String[] args) throws IOException {
 
-    // Obtain the model.
-    final MigrationResults before = MigrationResultParser
-        .parse(MigrationResultParser.PRE_HARVEST_RUN_ID, SPLIT_RUN);
-    final MigrationResults after = MigrationResultParser.parseFrom(SPLIT_RUN);
+    // Obtain the model and write the report.
+    createReport(MigrationResultParser.parseHistory());
+  }
+
+  static void createReport(MigrationHistory history) throws IOException {
 
     // Write the different plugins.
     try (
@@ -37,21 +37,18 @@ public class InvalidatedResultsListerMain {
       csvWriter.writeNext(
           new String[]{"ID", "Name", "Plugin", "Run 1", "Plugin status 1", "Processed 1",
               "Errors 1", "Run 2", "Plugin status 2", "Processed 2", "Errors 2"});
-      writeForPlugin(csvWriter, before.getMigrationResults(PluginType.OAIPMH_HARVEST),
-          after.getMigrationResults(PluginType.OAIPMH_HARVEST));
-      writeForPlugin(csvWriter, before.getMigrationResults(PluginType.PREVIEW),
-          after.getMigrationResults(PluginType.PREVIEW));
-      writeForPlugin(csvWriter, before.getMigrationResults(PluginType.PUBLISH),
-          after.getMigrationResults(PluginType.PUBLISH));
+      writeForPlugin(csvWriter, history, PluginType.OAIPMH_HARVEST);
+      writeForPlugin(csvWriter, history, PluginType.PREVIEW);
+      writeForPlugin(csvWriter, history, PluginType.PUBLISH);
     }
   }
 
-  private static void writeForPlugin(CSVWriter csvWriter, Map<String, MigrationResult> before,
-      Map<String, MigrationResult> after) {
-    after.entrySet().stream().filter(entry -> before.containsKey(entry.getKey())).forEach(entry ->
-        csvWriter.writeNext(
-            createFullReportLine(entry.getKey(), before.get(entry.getKey()), entry.getValue()))
-    );
+  // The results from the split run onwards that replace a result from before the split run.
+  private static void writeForPlugin(CSVWriter csvWriter, MigrationHistory history,
+      PluginType pluginType) {
+    history.getChanges(pluginType, SPLIT_RUN, MigrationResultParser.FUTURE_RUN_ID).stream()
+        .filter(change -> change.getBefore() != null).forEach(change -> csvWriter.writeNext(
+        createFullReportLine(change.getDatasetId(), change.getBefore(), change.getAfter())));
   }
 
   private static String[] createFullReportLine(String datasetId, MigrationResult before,
@@ -0,0 +1,231 @@
+package eu.europeana.metis.migration.results;
+
+import eu.europeana.metis.migration.results.SkipFileCreatorMain.SkipFileDefinition;
+import eu.europeana.metis.migration.results.SkipFileCreatorMain.StatusListingDefinition;
+import eu.europeana.metis.migration.results.model.DatasetInfo;
+import eu.europeana.metis.migration.results.model.MigrationResult;
+import eu.europeana.metis.migration.results.model.MigrationResults;
+import eu.europeana.metis.migration.results.report.ReportDefinition;
+import eu.europeana.metis.migration.results.report.ReportEngine;
+import eu.europeana.metis.migration.results.report.ReportStatistics;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class follows the final dataset status logs while the datasets are being executed. It
+ * watches the log directory and parses the lines that are appended to the log files, so that the
+ * results in memory are always up to date without parsing the logs again. At a fixed interval (if
+ * there were new results) it rewrites the skip files and a summary with the statistics. Each file
+ * is written under a temporary name first and then moved into place, so readers never see a half
+ * written file. This class runs until it is stopped.
+ */
+public class LogFollowerMain {
+
+  private static final String SUMMARY_FILE = "/home/jochen/migration/new_skip_lists/rolling_summary.txt";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+
+  // The interval at which the skip files and the summary are written, unless given as argument.
+  private static final long DEFAULT_WRITE_INTERVAL_SECONDS = 60;
+
+  private final Map<String, DatasetInfo> datasetInfo;
+  private final long writeIntervalSeconds;
+  private final MigrationResults migrationResults = new MigrationResults();
+  private final Map<Path, FollowedFile> followedFiles = new HashMap<>();
+  private long resultCount = 0;
+  private boolean changed = true;
+
+  private LogFollowerMain(Map<String, DatasetInfo> datasetInfo, long writeIntervalSeconds) {
+    this.datasetInfo = datasetInfo;
+    this.writeIntervalSeconds = writeIntervalSeconds;
+    migrationResults.addAll(MigrationResultParser.createPreProcessResults(datasetInfo));
+  }
+
+  /**
+   * Follows the logs.
+   *
+   * @param args optionally the interval (in seconds) at which the output is written.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    final long writeIntervalSeconds =
+        args.length > 0 ? Long.parseLong(args[0].trim()) : DEFAULT_WRITE_INTERVAL_SECONDS;
+    if (writeIntervalSeconds < 1) {
+      throw new IllegalArgumentException("The write interval must be at least one second.");
+    }
+    new LogFollowerMain(MigrationResultParser.readDatasetInfo(), writeIntervalSeconds).follow();
+  }
+
+  private void follow() throws IOException, InterruptedException {
+    final Path directory = MigrationResultParser.getLogDirectory().toPath();
+    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+
+      // Register before reading the existing files, so that no appended lines are missed.
+      directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      readAllFiles(directory);
+      System.out.println("Following log directory: " + directory);
+
+      // Read the files as they change and write the output at the interval.
+      long nextWrite = System.nanoTime();
+      while (true) {
+        final long waitNanos = nextWrite - System.nanoTime();
+        if (waitNanos <= 0) {
+          writeOutputIfChanged();
+          nextWrite = System.nanoTime() + TimeUnit.SECONDS.toNanos(writeIntervalSeconds);
+          continue;
+        }
+        final WatchKey key = watchService.poll(waitNanos, TimeUnit.NANOSECONDS);
+        if (key == null) {
+          continue;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            // Events were lost: check all files.
+            readAllFiles(directory);
+          } else {
+            final Path fileName = (Path) event.context();
+            if (MigrationResultParser.isLogFile(fileName.toString())) {
+              readFile(directory.resolve(fileName));
+            }
+          }
+        }
+        if (!key.reset()) {
+          throw new IOException("Log directory is no longer accessible: " + directory);
+        }
+      }
+    }
+  }
+
+  private void readAllFiles(Path directory) throws IOException {
+    final List<Path> files;
+    try (Stream<Path> paths = Files.list(directory)) {
+      files = paths.filter(path -> MigrationResultParser.isLogFile(path.getFileName().toString()))
+          .sorted().collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      readFile(file);
+    }
+  }
+
+  // Reads what was appended to the file since the last time. Only complete lines are processed.
+  // A file that was removed is no longer followed (its results are kept).
+  private void readFile(Path file) throws IOException {
+    final FollowedFile followedFile = followedFiles.computeIfAbsent(file, FollowedFile::new);
+    final List<String> lines;
+    try {
+      lines = followedFile.readNewLines();
+    } catch (NoSuchFileException e) {
+      System.out.println("Log file was removed, no longer following: " + file.getFileName());
+      followedFiles.remove(file);
+      return;
+    }
+    for (String line : lines) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      try {
+        migrationResults.add(new MigrationResult(followedFile.runId, datasetInfo::get, line));
+        resultCount++;
+        changed = true;
+      } catch (IllegalArgumentException e) {
+        System.out.println("Ignoring line in " + file.getFileName() + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private void writeOutputIfChanged() throws IOException, InterruptedException {
+    if (!changed) {
+      return;
+    }
+    changed = false;
+
+    // Write the skip files and collect the unsuccessful datasets for the summary.
+    final List<SkipFileDefinition> skipFiles = SkipFileCreatorMain
+        .createSkipFileDefinitions(TEMPORARY_SUFFIX);
+    final StatusListingDefinition statusListing = new StatusListingDefinition();
+    final List<ReportDefinition> definitions = new ArrayList<>(skipFiles);
+    definitions.add(statusListing);
+    final ReportStatistics statistics = new ReportEngine(definitions).run(migrationResults);
+    for (SkipFileDefinition skipFile : skipFiles) {
+      skipFile.commit();
+    }
+
+    // Write the summary.
+    final Path summaryFile = Paths.get(SUMMARY_FILE);
+    final Path temporaryFile = Paths.get(SUMMARY_FILE + TEMPORARY_SUFFIX);
+    try (PrintStream out = new PrintStream(Files.newOutputStream(temporaryFile), false,
+        StandardCharsets.UTF_8.name())) {
+      out.println(String.format("Summary of %s: %d results read from %d log files.",
+          LocalDateTime.now(), resultCount, followedFiles.size()));
+      SkipFileCreatorMain.printStatistics(statistics, statusListing, skipFiles, out);
+    }
+    Files.move(temporaryFile, summaryFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    System.out.println("Written skip files and summary (" + resultCount + " results).");
+  }
+
+  private static class FollowedFile {
+
+    private final Path path;
+    private final String runId;
+    private final ByteArrayOutputStream incompleteLine = new ByteArrayOutputStream();
+    private long position = 0;
+
+    FollowedFile(Path path) {
+      this.path = path;
+      this.runId = MigrationResultParser.getRunId(path.getFileName().toString());
+    }
+
+    List<String> readNewLines() throws IOException {
+      final List<String> lines = new ArrayList<>();
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        if (channel.size() < position) {
+          // The file was replaced or truncated: start again (later results replace older ones).
+          System.out.println("Log file was truncated, reading again: " + path.getFileName());
+          position = 0;
+          incompleteLine.reset();
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+          position += read;
+          final byte[] bytes = buffer.array();
+          int lineStart = 0;
+          for (int i = 0; i < read; i++) {
+            if (bytes[i] == '\n') {
+              incompleteLine.write(bytes, lineStart, i - lineStart);
+              lines.add(new String(incompleteLine.toByteArray(), StandardCharsets.UTF_8));
+              incompleteLine.reset();
+              lineStart = i + 1;
+            }
+          }
+          incompleteLine.write(bytes, lineStart, read - lineStart);
+          buffer.clear();
+        }
+      }
+      return lines;
+    }
+  }
+}
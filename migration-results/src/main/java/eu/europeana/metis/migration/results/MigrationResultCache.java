@@ -0,0 +1,224 @@
+package eu.europeana.metis.migration.results;
+
+import eu.europeana.metis.migration.results.model.DatasetInfo;
+import eu.europeana.metis.migration.results.model.MigrationResult;
+import eu.europeana.metis.migration.results.model.MigrationResults;
+import eu.europeana.metis.migration.results.model.PluginStatus;
+import eu.europeana.metis.migration.results.model.PluginType;
+import eu.europeana.metis.migration.results.model.TaskStatus;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the parsed results of the status log files, kept in a compact binary file. The
+ * results are kept per run ID together with the size and the modification time of the log file:
+ * if either has changed, the cached results of that run are not used. Runs of which the log file
+ * is gone are removed (see {@link #retainRuns(Set)}). The dataset info is not
+ * cached: it is attached again when the cache is loaded. This class is thread-safe.
+ */
+class MigrationResultCache {
+
+  private static final int MAGIC = 0x4D524331; // "MRC1"
+  private static final int VERSION = 1;
+  private static final String NULL_VALUE = "";
+
+  private final Map<String, CachedRun> cachedRuns = new ConcurrentHashMap<>();
+  private volatile boolean modified = false;
+
+  private MigrationResultCache() {
+  }
+
+  /**
+   * Loads the cache. If the file does not exist or cannot be read, an empty cache is returned.
+   *
+   * @param cacheFile the cache file.
+   * @param datasetInfo the dataset info to attach to the results.
+   * @return the cache.
+   */
+  static MigrationResultCache load(String cacheFile, Map<String, DatasetInfo> datasetInfo) {
+    final MigrationResultCache cache = new MigrationResultCache();
+    final Path path = Paths.get(cacheFile);
+    if (!Files.exists(path)) {
+      return cache;
+    }
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        System.out.println("Ignoring cache file with unknown format: " + cacheFile);
+        return cache;
+      }
+      final int runCount = input.readInt();
+      for (int i = 0; i < runCount; i++) {
+        final String runId = input.readUTF();
+        final long size = input.readLong();
+        final long lastModified = input.readLong();
+        final int resultCount = input.readInt();
+        final List<MigrationResult> results = new ArrayList<>(resultCount);
+        for (int j = 0; j < resultCount; j++) {
+          results.add(readResult(input, runId, datasetInfo));
+        }
+        cache.cachedRuns.put(runId, new CachedRun(size, lastModified, results));
+      }
+    } catch (IOException | RuntimeException e) {
+      System.out.println("Ignoring cache file that could not be read: " + cacheFile);
+      cache.cachedRuns.clear();
+    }
+    return cache;
+  }
+
+  /**
+   * Returns the cached results of a log file.
+   *
+   * @param file the log file.
+   * @param runId the run ID of the log file.
+   * @return the results, or null if there are none or if the file has changed since.
+   */
+  MigrationResults get(File file, String runId) {
+    final CachedRun cachedRun = cachedRuns.get(runId);
+    if (cachedRun == null || cachedRun.size != file.length()
+        || cachedRun.lastModified != file.lastModified()) {
+      return null;
+    }
+    final MigrationResults migrationResults = new MigrationResults();
+    cachedRun.results.forEach(migrationResults::add);
+    return migrationResults;
+  }
+
+  /**
+   * Adds the results of a log file that was read completely.
+   *
+   * @param runId the run ID of the log file.
+   * @param size the size of the log file before it was read.
+   * @param lastModified the modification time of the log file before it was read.
+   * @param migrationResults the results.
+   */
+  void put(String runId, long size, long lastModified, MigrationResults migrationResults) {
+    final List<MigrationResult> results = new ArrayList<>();
+    for (PluginType pluginType : PluginType.values()) {
+      results.addAll(migrationResults.getMigrationResults(pluginType).values());
+    }
+    cachedRuns.put(runId, new CachedRun(size, lastModified, results));
+    modified = true;
+  }
+
+  /**
+   * Removes the cached results of all runs other than the given ones, e.g. of log files that no
+   * longer exist.
+   *
+   * @param runIds the run IDs of which to keep the cached results.
+   */
+  void retainRuns(Set<String> runIds) {
+    if (cachedRuns.keySet().retainAll(runIds)) {
+      modified = true;
+    }
+  }
+
+  /**
+   * Saves the cache if it was modified since it was loaded. The file is written under a unique
+   * temporary name in the same directory and then replaces the cache file atomically, so that
+   * other processes that save the cache at the same time don't write into the same file.
+   *
+   * @param cacheFile the cache file.
+   * @throws IOException in case the file could not be written.
+   */
+  void saveIfModified(String cacheFile) throws IOException {
+    if (!modified) {
+      return;
+    }
+    final Path path = Paths.get(cacheFile).toAbsolutePath();
+    final Path temporaryPath = Files
+        .createTempFile(path.getParent(), path.getFileName().toString() + ".", ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(cachedRuns.size());
+        for (Map.Entry<String, CachedRun> entry : cachedRuns.entrySet()) {
+          output.writeUTF(entry.getKey());
+          output.writeLong(entry.getValue().size);
+          output.writeLong(entry.getValue().lastModified);
+          output.writeInt(entry.getValue().results.size());
+          for (MigrationResult result : entry.getValue().results) {
+            writeResult(output, result);
+          }
+        }
+      }
+      Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporaryPath);
+    }
+    modified = false;
+  }
+
+  private static void writeResult(DataOutputStream output, MigrationResult result)
+      throws IOException {
+    output.writeUTF(result.getDatasetId());
+    output.writeUTF(result.getEcloudDatasetId());
+    output.writeUTF(result.getExecutionId());
+    output.writeUTF(result.getPluginType().name());
+    output.writeUTF(result.getExternalTaskId());
+    output.writeUTF(result.getPluginStatus().name());
+    writeInteger(output, result.getExpectedRecords());
+    writeInteger(output, result.getProcessedRecords());
+    writeInteger(output, result.getErrorRecords());
+    output.writeUTF(result.getTaskStatus() == null ? NULL_VALUE : result.getTaskStatus().name());
+  }
+
+  private static MigrationResult readResult(DataInputStream input, String runId,
+      Map<String, DatasetInfo> datasetInfo) throws IOException {
+    final String datasetId = input.readUTF();
+    final String ecloudDatasetId = input.readUTF();
+    final String executionId = input.readUTF();
+    final PluginType pluginType = PluginType.valueOf(input.readUTF());
+    final String externalTaskId = input.readUTF();
+    final PluginStatus pluginStatus = PluginStatus.valueOf(input.readUTF());
+    final Integer expectedRecords = readInteger(input);
+    final Integer processedRecords = readInteger(input);
+    final Integer errorRecords = readInteger(input);
+    final String taskStatusString = input.readUTF();
+    final TaskStatus taskStatus =
+        NULL_VALUE.equals(taskStatusString) ? null : TaskStatus.valueOf(taskStatusString);
+    return new MigrationResult(runId, datasetInfo.get(datasetId), datasetId, ecloudDatasetId,
+        executionId, pluginType, externalTaskId, pluginStatus, expectedRecords, processedRecords,
+        errorRecords, taskStatus);
+  }
+
+  private static void writeInteger(DataOutputStream output, Integer value) throws IOException {
+    output.writeBoolean(value != null);
+    if (value != null) {
+      output.writeInt(value);
+    }
+  }
+
+  private static Integer readInteger(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readInt() : null;
+  }
+
+  private static class CachedRun {
+
+    private final long size;
+    private final long lastModified;
+    private final List<MigrationResult> results;
+
+    CachedRun(long size, long lastModified, List<MigrationResult> results) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.results = results;
+    }
+  }
+}
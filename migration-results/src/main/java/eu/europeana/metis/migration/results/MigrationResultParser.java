@@ -3,6 +3,7 @@ package eu.europeana.metis.migration.results;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.europeana.metis.migration.results.model.DatasetInfo;
+import eu.europeana.metis.migration.results.model.MigrationHistory;
 import eu.europeana.metis.migration.results.model.MigrationResult;
 import eu.europeana.metis.migration.results.model.MigrationResults;
 import eu.europeana.metis.migration.results.model.PluginStatus;
@@ -32,6 +33,7 @@ class MigrationResultParser {
   private static final String LOG_FILE_SUFFIX = ".log";
 
   private static final String DATASET_INFO_FILE = "/home/jochen/migration/dataset_info.json";
+  private static final String CACHE_FILE = "/home/jochen/migration/migration_results_cache.bin";
 
   static final String PRE_HARVEST_RUN_ID = "0000-00-00-000000";
   static final String BATCH_2_FIRST_RUN_ID = "2018-08-13-170336";
@@ -66,14 +68,29 @@ class MigrationResultParser {
   }
 
   static MigrationResults parse(String fromRunId, String toRunId) throws IOException {
+    return parse(listFiles(fromRunId, toRunId), PRE_HARVEST_RUN_ID.compareTo(fromRunId) >= 0);
+  }
+
+  // Parses all runs, keeping the results of each run. Windows and differences between run IDs can
+  // then be obtained from the history without parsing again.
+  static MigrationHistory parseHistory() throws IOException {
+    final List<File> files = listFiles(PRE_HARVEST_RUN_ID, FUTURE_RUN_ID);
+    final Map<String, DatasetInfo> datasetInfo = readDatasetInfo();
+    final MigrationHistory history = new MigrationHistory();
+    history.addRun(PRE_HARVEST_RUN_ID, createPreProcessResults(datasetInfo));
+    final List<MigrationResults> results = processFiles(files, datasetInfo);
+    for (int i = 0; i < files.size(); i++) {
+      history.addRun(getRunId(files.get(i)), results.get(i));
+    }
+    return history;
+  }
+
+  private static List<File> listFiles(String fromRunId, String toRunId) {
     final File directory = new File(DIRECTORY);
-    final List<File> files = Stream.of(directory.listFiles())
-        .filter(file -> file.getName().startsWith(LOG_FILE_PREFIX))
-        .filter(file -> file.getName().endsWith(LOG_FILE_SUFFIX))
+    return Stream.of(directory.listFiles()).filter(file -> isLogFile(file.getName()))
         .filter(file -> getRunId(file).compareTo(fromRunId) >= 0)
         .filter(file -> getRunId(file).compareTo(toRunId) < 0)
         .sorted(Comparator.comparing(File::getName)).collect(Collectors.toList());
-    return parse(files, PRE_HARVEST_RUN_ID.compareTo(fromRunId) >= 0);
   }
 
   static Map<String, DatasetInfo> readDatasetInfo() throws IOException {
@@ -93,44 +110,85 @@ class MigrationResultParser {
     // Add pre precessed model
     final MigrationResults migrationResults = new MigrationResults();
     if (includePreProcessResults) {
-      System.out.println("Parsing run: " + PRE_HARVEST_RUN_ID);
-      for (Entry<String, Integer> preProcessedDataset : PRE_PROCESSED_DATASETS.entrySet()) {
-        final String datasetId = preProcessedDataset.getKey();
-        final int datasetSize = preProcessedDataset.getValue();
-        migrationResults.add(
-            new MigrationResult(PRE_HARVEST_RUN_ID, datasetInfo.get(datasetId), datasetId,
-                "UNKNOWN",
-                "UNKNOWN", PluginType.OAIPMH_HARVEST, "UNKNOWN", PluginStatus.FINISHED, datasetSize,
-                datasetSize, 0, TaskStatus.PROCESSED));
-        migrationResults.add(
-            new MigrationResult(PRE_HARVEST_RUN_ID, datasetInfo.get(datasetId), datasetId,
-                "UNKNOWN",
-                "UNKNOWN", PluginType.PREVIEW, "UNKNOWN", PluginStatus.FINISHED, datasetSize,
-                datasetSize, 0, TaskStatus.PROCESSED));
-      }
+      migrationResults.addAll(createPreProcessResults(datasetInfo));
     }
 
-    // Process the files.
-    files.forEach(file -> processFile(file, migrationResults, datasetInfo));
+    // Merge the results of the files in file order, so that the outcome does not depend on the
+    // order in which the files were processed.
+    processFiles(files, datasetInfo).forEach(migrationResults::addAll);
 
     // Done
     return migrationResults;
   }
 
+  static MigrationResults createPreProcessResults(Map<String, DatasetInfo> datasetInfo) {
+    System.out.println("Parsing run: " + PRE_HARVEST_RUN_ID);
+    final MigrationResults migrationResults = new MigrationResults();
+    for (Entry<String, Integer> preProcessedDataset : PRE_PROCESSED_DATASETS.entrySet()) {
+      final String datasetId = preProcessedDataset.getKey();
+      final int datasetSize = preProcessedDataset.getValue();
+      migrationResults.add(
+          new MigrationResult(PRE_HARVEST_RUN_ID, datasetInfo.get(datasetId), datasetId,
+              "UNKNOWN",
+              "UNKNOWN", PluginType.OAIPMH_HARVEST, "UNKNOWN", PluginStatus.FINISHED, datasetSize,
+              datasetSize, 0, TaskStatus.PROCESSED));
+      migrationResults.add(
+          new MigrationResult(PRE_HARVEST_RUN_ID, datasetInfo.get(datasetId), datasetId,
+              "UNKNOWN",
+              "UNKNOWN", PluginType.PREVIEW, "UNKNOWN", PluginStatus.FINISHED, datasetSize,
+              datasetSize, 0, TaskStatus.PROCESSED));
+    }
+    return migrationResults;
+  }
+
+  // Processes the files in parallel, each into its own results (taken from the cache if the file
+  // didn't change). The results are returned in file order. Runs without a log file are evicted
+  // from the cache.
+  private static List<MigrationResults> processFiles(List<File> files,
+      Map<String, DatasetInfo> datasetInfo) throws IOException {
+    final MigrationResultCache cache = MigrationResultCache.load(CACHE_FILE, datasetInfo);
+    cache.retainRuns(listFiles(PRE_HARVEST_RUN_ID, FUTURE_RUN_ID).stream()
+        .map(MigrationResultParser::getRunId).collect(Collectors.toSet()));
+    final List<MigrationResults> results = files.parallelStream()
+        .map(file -> processFile(file, datasetInfo, cache)).collect(Collectors.toList());
+    cache.saveIfModified(CACHE_FILE);
+    return results;
+  }
+
+  static File getLogDirectory() {
+    return new File(DIRECTORY);
+  }
+
+  static boolean isLogFile(String fileName) {
+    return fileName.startsWith(LOG_FILE_PREFIX) && fileName.endsWith(LOG_FILE_SUFFIX);
+  }
+
+  static String getRunId(String fileName) {
+    return fileName
+        .substring(LOG_FILE_PREFIX.length(), fileName.length() - LOG_FILE_SUFFIX.length());
+  }
+
   private static String getRunId(File file) {
-    return file.getName()
-        .substring(LOG_FILE_PREFIX.length(), file.getName().length() - LOG_FILE_SUFFIX.length());
+    return getRunId(file.getName());
   }
 
-  private static void processFile(File file, MigrationResults migrationResults,
-      Map<String, DatasetInfo> datasetInfo) {
+  private static MigrationResults processFile(File file, Map<String, DatasetInfo> datasetInfo,
+      MigrationResultCache cache) {
 
     // Get the run id. This part of the file name should consists of a date followed by a time. E.g.
     // 2018-07-16-182455. So they are strictly increasing.
     final String runId = getRunId(file);
+    final MigrationResults cachedResults = cache.get(file, runId);
+    if (cachedResults != null) {
+      System.out.println("Using cached results of run: " + runId);
+      return cachedResults;
+    }
     System.out.println("Parsing run: " + runId);
+    final long size = file.length();
+    final long lastModified = file.lastModified();
 
-    // Add each file to the migration model.
+    // Add each line to the migration model.
+    final MigrationResults migrationResults = new MigrationResults();
     try (InputStream is = Files.newInputStream(file.toPath(), StandardOpenOption.READ)) {
       final InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
       final BufferedReader lineReader = new BufferedReader(reader);
@@ -140,9 +198,11 @@ class MigrationResultParser {
           migrationResults.add(new MigrationResult(runId, datasetInfo::get, line));
         }
       }
+      cache.put(runId, size, lastModified, migrationResults);
     } catch (IOException e) {
       System.out.println("Could not read file " + file.getName());
       e.printStackTrace();
     }
+    return migrationResults;
   }
 }
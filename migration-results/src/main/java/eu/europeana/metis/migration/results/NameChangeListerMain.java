@@ -26,8 +26,13 @@ public class NameChangeListerMain {
 
   public static void main(String[] args) throws IOException {
 
+    // Collect the harvesting model and write the report.
+    createReport(MigrationResultParser.parseAll());
+  }
+
+  static void createReport(MigrationResults migrationResults) throws IOException {
+
     // Collect the harvesting model and dataset info
-    final MigrationResults migrationResults = MigrationResultParser.parseAll();
     final Map<String, MigrationResult> harvestResults = migrationResults.getMigrationResults(
         PluginType.OAIPMH_HARVEST);
     final Map<String, DatasetInfo> datasetInfo = MigrationResultParser.readDatasetInfo();
@@ -4,20 +4,25 @@ import eu.europeana.metis.migration.results.model.MigrationResult;
 import eu.europeana.metis.migration.results.model.MigrationResult.ResultStatus;
 import eu.europeana.metis.migration.results.model.MigrationResults;
 import eu.europeana.metis.migration.results.model.PluginType;
-import java.io.BufferedWriter;
+import eu.europeana.metis.migration.results.report.DatasetResults;
+import eu.europeana.metis.migration.results.report.LineReportWriter;
+import eu.europeana.metis.migration.results.report.ReportDefinition;
+import eu.europeana.metis.migration.results.report.ReportEngine;
+import eu.europeana.metis.migration.results.report.ReportStatistics;
+import eu.europeana.metis.report.ReportWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.PrintStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * This file creates the skip files and also does the full analysis on everything that has
@@ -29,9 +34,12 @@ public class SkipFileCreatorMain {
   private static final String PREVIEW_SKIP_FILE = "/home/jochen/migration/new_skip_lists/processed-datasets-preview.log";
   private static final String PUBLISH_SKIP_FILE = "/home/jochen/migration/new_skip_lists/processed-datasets-publish.log";
 
+  private static final List<PluginType> PLUGIN_TYPES = Arrays
+      .asList(PluginType.OAIPMH_HARVEST, PluginType.PREVIEW, PluginType.PUBLISH);
+
   private static List<String> DATASETS_TO_BE_IGNORED = Collections.emptyList();
 
-  public static void main(String[] args) throws IOException {
+  public static void main(String[] args) throws IOException, InterruptedException {
 
     // Collect the migration results
     // NOTE: for skip files, must load ALL migration model!
@@ -39,184 +47,262 @@ public class SkipFileCreatorMain {
         .parse(MigrationResultParser.PRE_HARVEST_RUN_ID,
             MigrationResultParser.FUTURE_RUN_ID);
 
-    // Process the model to obtain statistics
-    processResultsForPluginType(migrationResults, PluginType.OAIPMH_HARVEST);
-    processResultsForPluginType(migrationResults, PluginType.PREVIEW);
-    processResultsForPluginType(migrationResults, PluginType.PUBLISH);
+    // Create the skip files and print the statistics (with the unsuccessful datasets).
+    final List<SkipFileDefinition> skipFiles = createSkipFileDefinitions();
+    final StatusListingDefinition statusListing = new StatusListingDefinition();
+    final List<ReportDefinition> definitions = new ArrayList<>(skipFiles);
+    definitions.add(statusListing);
+    final ReportStatistics statistics = new ReportEngine(definitions).run(migrationResults);
+    printStatistics(statistics, statusListing, skipFiles, System.out);
+  }
+
+  static List<SkipFileDefinition> createSkipFileDefinitions() {
+    return createSkipFileDefinitions("");
+  }
+
+  // The skip files are first written to the file path with the suffix (see SkipFileDefinition).
+  static List<SkipFileDefinition> createSkipFileDefinitions(String temporarySuffix) {
+    return Arrays.asList(
+        new SkipFileDefinition(PluginType.OAIPMH_HARVEST, HARVEST_SKIP_FILE, temporarySuffix),
+        new SkipFileDefinition(PluginType.PREVIEW, PREVIEW_SKIP_FILE, temporarySuffix),
+        new SkipFileDefinition(PluginType.PUBLISH, PUBLISH_SKIP_FILE, temporarySuffix));
+  }
 
-    // Create skip files
-    System.out.println();
-    createSkipFile(migrationResults, PluginType.OAIPMH_HARVEST, HARVEST_SKIP_FILE);
-    createSkipFile(migrationResults, PluginType.PREVIEW, PREVIEW_SKIP_FILE);
-    createSkipFile(migrationResults, PluginType.PUBLISH, PUBLISH_SKIP_FILE);
+  static void printStatistics(ReportStatistics statistics, StatusListingDefinition statusListing,
+      List<SkipFileDefinition> skipFiles, PrintStream out) {
+    PLUGIN_TYPES.forEach(
+        pluginType -> printPluginStatistics(statistics, statusListing, pluginType, out));
+    out.println();
+    skipFiles.forEach(skipFile -> skipFile.printAvailability(out));
   }
 
-  private static boolean resultInvalidated(MigrationResult result,
-      Map<String, MigrationResult> resultsPreviousPlugin) {
+  private static boolean resultInvalidated(DatasetResults results, PluginType pluginType,
+      PluginType previousPluginType) {
     // Determines if the result is invalidated by a later result in the previous plugin: i.e. is
     // there a later result in the previous plugin that is ready for this plugin to build on.
-    final MigrationResult previousPluginResult = resultsPreviousPlugin.get(result.getDatasetId());
-    return previousPluginResult != null && previousPluginResult.readyForNextPlugin()
+    final MigrationResult result = results.getResult(pluginType);
+    final MigrationResult previousPluginResult = results.getResult(previousPluginType);
+    return result != null && results.readyForNextPlugin(previousPluginType)
         && previousPluginResult.getRunId().compareTo(result.getRunId()) > 0;
   }
 
-  private static void createSkipFile(MigrationResults allResults,
-      PluginType pluginType, String filePath) {
-
-    // The skip list: add the consant list of datasets to be ignored.
-    final Set<String> skip = new HashSet<>(DATASETS_TO_BE_IGNORED);
-
-    // Skip all datasets from this plugin that we should not do again.
-    final Map<String, MigrationResult> resultsThisPlugin = allResults
-        .getMigrationResults(pluginType);
-    final Set<String> completedSetsThisPlugin = resultsThisPlugin.values().stream()
-        .filter(result -> !result.shouldDoAgain()).map(MigrationResult::getDatasetId)
-        .collect(Collectors.toSet());
-    skip.addAll(completedSetsThisPlugin);
-
-    // In case of preview
-    if (PluginType.PREVIEW == pluginType) {
-      final Map<String, MigrationResult> harvestResults = allResults
-          .getMigrationResults(PluginType.OAIPMH_HARVEST);
-
-      // First remove those datasets that have a harvest after an index to preview.
-      final Set<String> invalidated = resultsThisPlugin.values().stream()
-          .filter(result -> resultInvalidated(result, harvestResults))
-          .map(MigrationResult::getDatasetId).collect(Collectors.toSet());
-      skip.removeAll(invalidated);
-
-      // Add datasets of harvest to the preview skip list if they are not ready for preview.
-      final Set<String> failedSetsHarvest = harvestResults.values().stream()
-          .filter(result -> !result.readyForNextPlugin()).map(MigrationResult::getDatasetId)
-          .collect(Collectors.toSet());
-      skip.addAll(failedSetsHarvest);
-
-      // Count harvests that are ready for preview and that are not to be skipped.
-      final List<MigrationResult> available = harvestResults.values().stream()
-          .filter(MigrationResult::readyForNextPlugin)
-          .filter(result -> !skip.contains(result.getDatasetId())).collect(Collectors.toList());
-      final int recordCount = available.stream().map(MigrationResult::getProcessedRecords)
-          .reduce(0, Integer::sum);
-      System.out.println(String
-          .format("Number of available datasets for plugin %s: %d (%d records)", pluginType,
-              available.size(), recordCount));
-      if (!invalidated.isEmpty()) {
-        System.out.println(String
-            .format("  (Of these, %d are invalidated by a later result in the previous plugin)",
-                invalidated.size()));
+  private static boolean completed(DatasetResults results, PluginType pluginType) {
+    final MigrationResult result = results.getResult(pluginType);
+    return result != null && !result.shouldDoAgain();
+  }
+
+  private static boolean failed(DatasetResults results, PluginType pluginType) {
+    return results.getResult(pluginType) != null && !results.readyForNextPlugin(pluginType);
+  }
+
+  private static void printPluginStatistics(ReportStatistics statistics,
+      StatusListingDefinition statusListing, PluginType pluginType, PrintStream out) {
+    out.println(String.format("\nStatistics for plugin type %s: ", pluginType));
+    out.println(String.format("  Total number of datasets processed: %d. ",
+        statistics.getResultCount(pluginType)));
+    out.println(String.format("  Number of empty datasets: %d.",
+        statistics.getResultCount(pluginType, ResultStatus.EMPTY)));
+    statusListing.print(pluginType, ResultStatus.EMPTY, out);
+    out.println(String.format("  Number of datasets that did not end normally: %d.",
+        statistics.getResultCount(pluginType, ResultStatus.DID_NOT_END_NORMALLY)));
+    statusListing.print(pluginType, ResultStatus.DID_NOT_END_NORMALLY, out);
+    out.println(String.format("  Number of datasets that ended normally, but had errors: %d.",
+        statistics.getResultCount(pluginType, ResultStatus.COMPLETED_WITH_ERRORS)));
+    statusListing.print(pluginType, ResultStatus.COMPLETED_WITH_ERRORS, out);
+    out.println(String.format(
+        "  Number of datasets that ended normally and without errors, but of which the totals don't match: %d.",
+        statistics.getResultCount(pluginType, ResultStatus.TOTALS_DONT_MATCH)));
+    statusListing.print(pluginType, ResultStatus.TOTALS_DONT_MATCH, out);
+    out.println(String
+        .format("  Number of datasets that ended successfully: %d (%d records).",
+            statistics.getResultCount(pluginType, ResultStatus.SUCCESS),
+            statistics.getRecordCount(pluginType, ResultStatus.SUCCESS)));
+  }
+
+  /**
+   * Lists the unsuccessful datasets per plugin type and status, as they are printed with the
+   * statistics. The lines are kept in memory by the writer and can be printed once the
+   * {@link ReportEngine} is done. Empty harvests are not listed.
+   */
+  static class StatusListingDefinition implements ReportDefinition {
+
+    private final Map<PluginType, Map<ResultStatus, List<String>>> lines =
+        new EnumMap<>(PluginType.class);
+
+    @Override
+    public ReportWriter createWriter() {
+      return new ReportWriter() {
+
+        @Override
+        public void writeRow(String[] row) {
+          final Map<ResultStatus, List<String>> linesOfPlugin = lines.computeIfAbsent(
+              PluginType.valueOf(row[0]), key -> new EnumMap<>(ResultStatus.class));
+          linesOfPlugin.computeIfAbsent(ResultStatus.valueOf(row[1]), key -> new ArrayList<>())
+              .add(row[2]);
+        }
+
+        @Override
+        public void close() {
+          // Nothing to close: the lines are printed by the caller.
+        }
+      };
+    }
+
+    @Override
+    public List<String[]> createRows(DatasetResults results) {
+      final List<String[]> rows = new ArrayList<>();
+      for (PluginType pluginType : PLUGIN_TYPES) {
+        final ResultStatus status = results.getStatus(pluginType);
+        if (status == null || status == ResultStatus.SUCCESS
+            || (status == ResultStatus.EMPTY && pluginType == PluginType.OAIPMH_HARVEST)) {
+          continue;
+        }
+        final MigrationResult result = results.getResult(pluginType);
+        final String line = status == ResultStatus.EMPTY
+            || status == ResultStatus.DID_NOT_END_NORMALLY ? result.toSummaryWithStatus()
+            : result.toSummaryWithCounts();
+        rows.add(new String[]{pluginType.name(), status.name(), line});
       }
+      return rows;
     }
 
-    // In case of publish
-    if (PluginType.PUBLISH == pluginType) {
-      final Map<String, MigrationResult> harvestResults = allResults
-          .getMigrationResults(PluginType.OAIPMH_HARVEST);
-      final Map<String, MigrationResult> previewResults = allResults
-          .getMigrationResults(PluginType.PREVIEW);
-
-      // First remove those datasets that have an index to preview after an index to publish.
-      final Set<String> invalidated = resultsThisPlugin.values().stream()
-          .filter(result -> resultInvalidated(result, previewResults))
-          .map(MigrationResult::getDatasetId).collect(Collectors.toSet());
-      skip.removeAll(invalidated);
-
-      // Add datasets of harvest to the publish skip list if they are not ready for preview.
-      final Set<String> failedSetsHarvest = harvestResults.values().stream()
-          .filter(result -> !result.readyForNextPlugin()).map(MigrationResult::getDatasetId)
-          .collect(Collectors.toSet());
-      skip.addAll(failedSetsHarvest);
-
-      // Add datasets of preview to the publish skip list if they are not ready for publish.
-      final Set<String> failedSetsPreview = previewResults.values().stream()
-          .filter(result -> !result.readyForNextPlugin()).map(MigrationResult::getDatasetId)
-          .collect(Collectors.toSet());
-      skip.addAll(failedSetsPreview);
-
-      // Add all datasets of harvest that have not been indexed for preview to skip list
-      final Set<String> nonPreviewedSetsHarvest = harvestResults.values().stream()
-          .map(MigrationResult::getDatasetId)
-          .filter(id -> !previewResults.containsKey(id) || failedSetsPreview.contains(id))
-          .collect(Collectors.toSet());
-      skip.addAll(nonPreviewedSetsHarvest);
-
-      // Count index to preview datasets that are ready for publish and that are not to be skipped.
-      final List<MigrationResult> available = previewResults.values().stream()
-          .filter(MigrationResult::readyForNextPlugin)
-          .filter(result -> !skip.contains(result.getDatasetId())).collect(Collectors.toList());
-      final int recordCount = available.stream().map(MigrationResult::getProcessedRecords)
-          .reduce(0, Integer::sum);
-      System.out.println(String
-          .format("Number of available datasets for plugin %s: %d (%d records)", pluginType,
-              available.size(), recordCount));
-      if (!invalidated.isEmpty()) {
-        System.out.println(String
-            .format("  (Of these, %d are invalidated by a later result in the previous plugin)",
-                invalidated.size()));
+    void print(PluginType pluginType, ResultStatus status, PrintStream out) {
+      lines.getOrDefault(pluginType, Collections.emptyMap())
+          .getOrDefault(status, Collections.emptyList()).forEach(out::println);
+    }
+  }
+
+  /**
+   * The skip file of a plugin type. Whether a dataset is to be skipped only depends on the results
+   * of that dataset, so the skip file is decided per dataset. The datasets to be ignored are always
+   * skipped: those that have no results are added when the skip file is closed. It also counts the
+   * datasets that are
+   * available for the plugin type (i.e. ready in the previous plugin and not skipped). If a
+   * temporary suffix is given, the file is written under that suffix first and only replaces the
+   * skip file (atomically) when {@link #commit()} is called.
+   */
+  static class SkipFileDefinition implements ReportDefinition {
+
+    private final PluginType pluginType;
+    private final String filePath;
+    private final String temporarySuffix;
+    private final Set<String> datasetsToBeIgnored = new HashSet<>(DATASETS_TO_BE_IGNORED);
+    private final Set<String> ignoredDatasetsWithoutResults = new HashSet<>(DATASETS_TO_BE_IGNORED);
+
+    private int availableDatasets = 0;
+    private long availableRecords = 0;
+    private int invalidatedDatasets = 0;
+
+    SkipFileDefinition(PluginType pluginType, String filePath, String temporarySuffix) {
+      this.pluginType = pluginType;
+      this.filePath = filePath;
+      this.temporarySuffix = temporarySuffix;
+    }
+
+    @Override
+    public ReportWriter createWriter() throws IOException {
+      final LineReportWriter writer = new LineReportWriter(
+          Files.newOutputStream(Paths.get(filePath + temporarySuffix)));
+      return new ReportWriter() {
+
+        @Override
+        public void writeRow(String[] row) throws IOException {
+          writer.writeRow(row);
+        }
+
+        // All rows are created by now: add the ignored datasets that were not encountered.
+        @Override
+        public void close() throws IOException {
+          try {
+            for (String datasetId : ignoredDatasetsWithoutResults) {
+              writer.writeRow(new String[]{datasetId});
+            }
+          } finally {
+            writer.close();
+          }
+        }
+      };
+    }
+
+    void commit() throws IOException {
+      if (!temporarySuffix.isEmpty()) {
+        Files.move(Paths.get(filePath + temporarySuffix), Paths.get(filePath),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
       }
     }
 
-    // Create the skip files
-    Path path = Paths.get(filePath);
-    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-      for (String line : skip) {
-        writer.write(line);
-        writer.newLine();
+    @Override
+    public List<String[]> createRows(DatasetResults results) {
+
+      // Skip the datasets to be ignored and those from this plugin that we should not do again.
+      ignoredDatasetsWithoutResults.remove(results.getDatasetId());
+      boolean skip = datasetsToBeIgnored.contains(results.getDatasetId())
+          || completed(results, pluginType);
+
+      // In case of preview
+      if (PluginType.PREVIEW == pluginType) {
+
+        // First remove those datasets that have a harvest after an index to preview.
+        final boolean invalidated = resultInvalidated(results, PluginType.PREVIEW,
+            PluginType.OAIPMH_HARVEST);
+        skip = skip && !invalidated;
+
+        // Add datasets of harvest to the preview skip list if they are not ready for preview.
+        skip = skip || failed(results, PluginType.OAIPMH_HARVEST);
+
+        // Count harvests that are ready for preview and that are not to be skipped.
+        count(results, PluginType.OAIPMH_HARVEST, skip, invalidated);
       }
-    } catch (IOException e) {
-      e.printStackTrace();
+
+      // In case of publish
+      if (PluginType.PUBLISH == pluginType) {
+
+        // First remove those datasets that have an index to preview after an index to publish.
+        final boolean invalidated = resultInvalidated(results, PluginType.PUBLISH,
+            PluginType.PREVIEW);
+        skip = skip && !invalidated;
+
+        // Add datasets of harvest and preview to the publish skip list if they are not ready.
+        final boolean failedPreview = failed(results, PluginType.PREVIEW);
+        skip = skip || failed(results, PluginType.OAIPMH_HARVEST) || failedPreview;
+
+        // Add all datasets of harvest that have not been indexed for preview to skip list
+        skip = skip || (results.getResult(PluginType.OAIPMH_HARVEST) != null && (
+            results.getResult(PluginType.PREVIEW) == null || failedPreview));
+
+        // Count index to preview datasets that are ready for publish and that are not skipped.
+        count(results, PluginType.PREVIEW, skip, invalidated);
+      }
+
+      // Done
+      return skip ? Collections.singletonList(new String[]{results.getDatasetId()})
+          : Collections.emptyList();
     }
-  }
 
-  private static void processResultsForPluginType(MigrationResults allResults,
-      PluginType pluginType) {
-
-    // Start section: determine how many were processed.
-    System.out.println(String.format("\nStatistics for plugin type %s: ", pluginType));
-    final Map<String, MigrationResult> results = allResults.getMigrationResults(pluginType);
-    System.out.println(String.format("  Total number of datasets processed: %d. ", results.size()));
-
-    // How many tasks were empty
-    final List<MigrationResult> resultsWereEmpty = results.values().stream()
-        .filter(ResultStatus.EMPTY).collect(Collectors.toList());
-    System.out.println(String.format("  Number of empty datasets: %d.", resultsWereEmpty.size()));
-    if (pluginType != PluginType.OAIPMH_HARVEST) {
-      resultsWereEmpty.stream().map(MigrationResult::toSummaryWithStatus)
-          .forEach(System.out::println);
+    private void count(DatasetResults results, PluginType previousPluginType, boolean skip,
+        boolean invalidated) {
+      if (results.readyForNextPlugin(previousPluginType) && !skip) {
+        availableDatasets++;
+        final Integer records = results.getResult(previousPluginType).getProcessedRecords();
+        availableRecords += records == null ? 0 : records;
+      }
+      if (invalidated) {
+        invalidatedDatasets++;
+      }
     }
 
-    // How many non-empty tasks did not end normally
-    final List<MigrationResult> resutsNotEndedNormally = results.values().stream()
-        .filter(ResultStatus.DID_NOT_END_NORMALLY).collect(Collectors.toList());
-    System.out.println(String.format("  Number of datasets that did not end normally: %d.",
-        resutsNotEndedNormally.size()));
-    resutsNotEndedNormally.stream().map(MigrationResult::toSummaryWithStatus)
-        .forEach(System.out::println);
-
-    // How many non-empty tasks ended normally but had errors
-    final List<MigrationResult> resutsWithErrors = results.values().stream()
-        .filter(ResultStatus.COMPLETED_WITH_ERRORS).collect(Collectors.toList());
-    System.out
-        .println(String.format("  Number of datasets that ended normally, but had errors: %d.",
-            resutsWithErrors.size()));
-    resutsWithErrors.stream().map(MigrationResult::toSummaryWithCounts)
-        .forEach(System.out::println);
-
-    // How many non-empty tasks ended normally, without errors, but the totals don't match.
-    final List<MigrationResult> resultsWithNonMatchingTotals = results.values().stream()
-        .filter(ResultStatus.TOTALS_DONT_MATCH).collect(Collectors.toList());
-    System.out.println(String.format(
-        "  Number of datasets that ended normally and without errors, but of which the totals don't match: %d.",
-        resultsWithNonMatchingTotals.size()));
-    resultsWithNonMatchingTotals.stream().map(MigrationResult::toSummaryWithCounts)
-        .forEach(System.out::println);
-
-    // How many non-empty tasks ended normally, without errors and with matching totals.
-    final List<MigrationResult> successfulDatasets = results.values().stream()
-        .filter(ResultStatus.SUCCESS).collect(Collectors.toList());
-    final int successfulRecordCount = successfulDatasets.stream()
-        .map(MigrationResult::getProcessedRecords).reduce(0, Integer::sum);
-    System.out.println(String
-        .format("  Number of datasets that ended successfully: %d (%d records).",
-            successfulDatasets.size(), successfulRecordCount));
+    void printAvailability(PrintStream out) {
+      if (pluginType == PluginType.OAIPMH_HARVEST) {
+        return;
+      }
+      out.println(String
+          .format("Number of available datasets for plugin %s: %d (%d records)", pluginType,
+              availableDatasets, availableRecords));
+      if (invalidatedDatasets > 0) {
+        out.println(String
+            .format("  (Of these, %d are invalidated by a later result in the previous plugin)",
+                invalidatedDatasets));
+      }
+    }
   }
 }
@@ -0,0 +1,130 @@
+package eu.europeana.metis.migration.results.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Keeps the results of all runs, instead of only the newest result per dataset as {@link
+ * MigrationResults} does. The runs are added in order of run ID and are never changed afterwards.
+ * For each plugin type and dataset, the runs in which the dataset has a result are indexed, so
+ * that the result of a dataset at any point in the history is found with a binary search.
+ *
+ * The state at a run ID is what {@link MigrationResults} would contain if all runs before that run
+ * ID were added to it. A window from one run ID (inclusive) to another (exclusive) is the same,
+ * but only with the results of the runs in the window (i.e. as if only those runs were parsed).
+ */
+public class MigrationHistory {
+
+  private final List<String> runIds = new ArrayList<>();
+  private final List<MigrationResults> runs = new ArrayList<>();
+  private final EnumMap<PluginType, Map<String, RunIndexes>> runIndexes = new EnumMap<>(
+      PluginType.class);
+
+  // Adds the results of a run. The run ID must be greater than that of all runs added before.
+  public void addRun(String runId, MigrationResults results) {
+    if (!runIds.isEmpty() && runIds.get(runIds.size() - 1).compareTo(runId) >= 0) {
+      throw new IllegalArgumentException(
+          "Run " + runId + " is not later than run " + runIds.get(runIds.size() - 1) + ".");
+    }
+    final int runIndex = runs.size();
+    runIds.add(runId);
+    runs.add(results);
+    for (PluginType pluginType : PluginType.values()) {
+      final Map<String, RunIndexes> indexesForPluginType = runIndexes
+          .computeIfAbsent(pluginType, type -> new TreeMap<>());
+      for (String datasetId : results.getMigrationResults(pluginType).keySet()) {
+        indexesForPluginType.computeIfAbsent(datasetId, id -> new RunIndexes()).add(runIndex);
+      }
+    }
+  }
+
+  // The newest result of the dataset in the window, or null if there is none.
+  public MigrationResult getMigrationResult(PluginType pluginType, String datasetId,
+      String fromRunId, String toRunId) {
+    final RunIndexes indexes = runIndexes.getOrDefault(pluginType, Collections.emptyMap())
+        .get(datasetId);
+    return indexes == null ? null : getMigrationResult(pluginType, datasetId, indexes,
+        findRun(indexes, fromRunId), findRun(indexes, toRunId));
+  }
+
+  // The newest results in the window: the same as parsing only the runs in the window.
+  public MigrationResults getMigrationResults(String fromRunId, String toRunId) {
+    final MigrationResults results = new MigrationResults();
+    for (Entry<PluginType, Map<String, RunIndexes>> entry : runIndexes.entrySet()) {
+      for (Entry<String, RunIndexes> indexes : entry.getValue().entrySet()) {
+        final MigrationResult result = getMigrationResult(entry.getKey(), indexes.getKey(),
+            indexes.getValue(), findRun(indexes.getValue(), fromRunId),
+            findRun(indexes.getValue(), toRunId));
+        if (result != null) {
+          results.add(result);
+        }
+      }
+    }
+    return results;
+  }
+
+  // Compares the state at two run IDs: returns the datasets with a result in the window from the
+  // first run ID to the second, with their newest result before and in the window (sorted by ID).
+  public List<MigrationResultChange> getChanges(PluginType pluginType, String fromRunId,
+      String toRunId) {
+    final List<MigrationResultChange> changes = new ArrayList<>();
+    final Map<String, RunIndexes> indexesForPluginType = runIndexes
+        .getOrDefault(pluginType, Collections.emptyMap());
+    for (Entry<String, RunIndexes> indexes : indexesForPluginType.entrySet()) {
+      final int fromPosition = findRun(indexes.getValue(), fromRunId);
+      final int toPosition = findRun(indexes.getValue(), toRunId);
+      if (fromPosition < toPosition) {
+        changes.add(new MigrationResultChange(indexes.getKey(),
+            getMigrationResult(pluginType, indexes.getKey(), indexes.getValue(), 0, fromPosition),
+            getMigrationResult(pluginType, indexes.getKey(), indexes.getValue(), fromPosition,
+                toPosition)));
+      }
+    }
+    return changes;
+  }
+
+  // The result of the last run of the dataset in positions [from, to) of the dataset's runs.
+  private MigrationResult getMigrationResult(PluginType pluginType, String datasetId,
+      RunIndexes indexes, int fromPosition, int toPosition) {
+    if (fromPosition >= toPosition) {
+      return null;
+    }
+    return runs.get(indexes.runs[toPosition - 1]).getMigrationResults(pluginType).get(datasetId);
+  }
+
+  // Binary search: the number of runs of the dataset with a run ID before the given run ID.
+  private int findRun(RunIndexes indexes, String runId) {
+    int low = 0;
+    int high = indexes.size;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (runIds.get(indexes.runs[middle]).compareTo(runId) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // The (increasing) indexes of the runs in which a dataset has a result.
+  private static class RunIndexes {
+
+    private int[] runs = new int[4];
+    private int size = 0;
+
+    void add(int runIndex) {
+      if (size == runs.length) {
+        runs = Arrays.copyOf(runs, size * 2);
+      }
+      runs[size] = runIndex;
+      size++;
+    }
+  }
+}
@@ -5,8 +5,6 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,30 +26,21 @@ public class MigrationResult {
     }
   }
 
-  private static final String DATASET_ID_GROUP = "datasetId";
-  private static final String ECLOUD_DATASET_ID_GROUP = "ecloudDatasetId";
-  private static final String EXECUTION_ID_GROUP = "executionId";
-  private static final String PLUGIN_TYPE_GROUP = "pluginType";
-  private static final String EXTERNAL_TASK_ID_GROUP = "externalTaskId";
-  private static final String PLUGIN_STATUS_GROUP = "pluginStatus";
-  private static final String EXPECTED_RECORDS_GROUP = "expectedRecords";
-  private static final String PROCESSED_RECORDS_GROUP = "processedRecords";
-  private static final String ERROR_RECORDS_GROUP = "errorRecords";
-  private static final String TASK_STATUS_GROUP = "taskStatus";
-
-  private static final String LINE_TEMPLATE =
-      ".*?- datasetId: (?<" + DATASET_ID_GROUP + ">[^,].*)"
-          + ", EcloudDatasetId: (?<" + ECLOUD_DATASET_ID_GROUP + ">[^,].*)"
-          + ", ExecutionId: (?<" + EXECUTION_ID_GROUP + ">[^,].*)"
-          + ", PluginType: (?<" + PLUGIN_TYPE_GROUP + ">[^,].*)"
-          + ", ExternalTaskId: (?<" + EXTERNAL_TASK_ID_GROUP + ">[^,].*)"
-          + ", PluginStatus: (?<" + PLUGIN_STATUS_GROUP + ">[^,].*)"
-          + ", ExpectedRecords: (?<" + EXPECTED_RECORDS_GROUP + ">[^,].*)"
-          + ", ProcessedRecords: (?<" + PROCESSED_RECORDS_GROUP + ">[^,].*)"
-          + ", ErrorRecords: (?<" + ERROR_RECORDS_GROUP + ">[^,].*)"
-          + ", TaskStatus: (?<" + TASK_STATUS_GROUP + ">[^,].*)"
-          + ".*";
-  private static final Pattern LINE_PATTERN = Pattern.compile(LINE_TEMPLATE);
+  // The labels preceding the fields in a line, in the order in which they occur. A line looks like
+  // "... - datasetId: X, EcloudDatasetId: X, ..., TaskStatus: X".
+  private static final String[] FIELD_LABELS = {"- datasetId: ", ", EcloudDatasetId: ",
+      ", ExecutionId: ", ", PluginType: ", ", ExternalTaskId: ", ", PluginStatus: ",
+      ", ExpectedRecords: ", ", ProcessedRecords: ", ", ErrorRecords: ", ", TaskStatus: "};
+  private static final int DATASET_ID_FIELD = 0;
+  private static final int ECLOUD_DATASET_ID_FIELD = 1;
+  private static final int EXECUTION_ID_FIELD = 2;
+  private static final int PLUGIN_TYPE_FIELD = 3;
+  private static final int EXTERNAL_TASK_ID_FIELD = 4;
+  private static final int PLUGIN_STATUS_FIELD = 5;
+  private static final int EXPECTED_RECORDS_FIELD = 6;
+  private static final int PROCESSED_RECORDS_FIELD = 7;
+  private static final int ERROR_RECORDS_FIELD = 8;
+  private static final int TASK_STATUS_FIELD = 9;
 
   private final String runId;
   private final DatasetInfo datasetInfo;
@@ -89,8 +78,8 @@ public class MigrationResult {
       String line) {
 
     // Check line format
-    final Matcher matcher = LINE_PATTERN.matcher(line);
-    if (!matcher.matches()) {
+    final String[] fields = tokenize(line);
+    if (fields == null) {
       throw new IllegalArgumentException("Line does not match pattern: " + line);
     }
 
@@ -98,31 +87,83 @@ public class MigrationResult {
     this.runId = runId;
 
     // Get the strings
-    datasetId = matcher.group(DATASET_ID_GROUP).trim();
-    ecloudDatasetId = matcher.group(ECLOUD_DATASET_ID_GROUP).trim();
-    executionId = matcher.group(EXECUTION_ID_GROUP).trim();
-    externalTaskId = matcher.group(EXTERNAL_TASK_ID_GROUP).trim();
+    datasetId = fields[DATASET_ID_FIELD].trim();
+    ecloudDatasetId = fields[ECLOUD_DATASET_ID_FIELD].trim();
+    executionId = fields[EXECUTION_ID_FIELD].trim();
+    externalTaskId = fields[EXTERNAL_TASK_ID_FIELD].trim();
     if (datasetId.isEmpty() || ecloudDatasetId.isEmpty() || executionId.isEmpty() || externalTaskId
         .isEmpty()) {
       throw new IllegalArgumentException("One of the string variables is empty: " + line);
     }
 
     // Get the enums
-    pluginType = Enum.valueOf(PluginType.class, matcher.group(PLUGIN_TYPE_GROUP).trim());
-    pluginStatus = Enum.valueOf(PluginStatus.class, matcher.group(PLUGIN_STATUS_GROUP).trim());
-    final String taskStatusString = matcher.group(TASK_STATUS_GROUP).trim();
+    pluginType = Enum.valueOf(PluginType.class, fields[PLUGIN_TYPE_FIELD].trim());
+    pluginStatus = Enum.valueOf(PluginStatus.class, fields[PLUGIN_STATUS_FIELD].trim());
+    final String taskStatusString = fields[TASK_STATUS_FIELD].trim();
     taskStatus =
         "null".equals(taskStatusString) ? null : Enum.valueOf(TaskStatus.class, taskStatusString);
 
     // Get integers
-    expectedRecords = parseInteger(matcher.group(EXPECTED_RECORDS_GROUP));
-    processedRecords = parseInteger(matcher.group(PROCESSED_RECORDS_GROUP));
-    errorRecords = parseInteger(matcher.group(ERROR_RECORDS_GROUP));
+    expectedRecords = parseInteger(fields[EXPECTED_RECORDS_FIELD]);
+    processedRecords = parseInteger(fields[PROCESSED_RECORDS_FIELD]);
+    errorRecords = parseInteger(fields[ERROR_RECORDS_FIELD]);
 
     // Set the dataset info
     datasetInfo = datasetInfoSupplier.apply(datasetId);
   }
 
+  // Splits the line in its fields by finding the labels. Returns null if a label is missing or a
+  // field is empty or starts with a comma. If a label also occurs inside a value, the fields are
+  // split as the regular expression that this replaces did: the first possible occurrence of the
+  // first label is used, and the last possible occurrence of each of the other labels. The last
+  // field runs until the end of the line.
+  static String[] tokenize(String line) {
+
+    // Find the last possible occurrence of every label but the first, from right to left.
+    final int[] labelStarts = new int[FIELD_LABELS.length];
+    int fieldEnd = line.length();
+    for (int i = FIELD_LABELS.length - 1; i > 0; i--) {
+      labelStarts[i] = findLastLabel(line, FIELD_LABELS[i], fieldEnd);
+      if (labelStarts[i] < 0) {
+        return null;
+      }
+      fieldEnd = labelStarts[i];
+    }
+
+    // Find the first possible occurrence of the first label.
+    labelStarts[0] = line.indexOf(FIELD_LABELS[0]);
+    while (labelStarts[0] >= 0
+        && !isValidField(line, labelStarts[0] + FIELD_LABELS[0].length(), fieldEnd)) {
+      labelStarts[0] = line.indexOf(FIELD_LABELS[0], labelStarts[0] + 1);
+    }
+    if (labelStarts[0] < 0) {
+      return null;
+    }
+
+    // Extract the fields.
+    final String[] fields = new String[FIELD_LABELS.length];
+    for (int i = 0; i < FIELD_LABELS.length; i++) {
+      final int fieldStart = labelStarts[i] + FIELD_LABELS[i].length();
+      fields[i] = line.substring(fieldStart,
+          i + 1 < FIELD_LABELS.length ? labelStarts[i + 1] : line.length());
+    }
+    return fields;
+  }
+
+  // Returns the start of the last occurrence of the label that is followed by a valid field ending
+  // at the given position, or -1 if there is none.
+  private static int findLastLabel(String line, String label, int fieldEnd) {
+    int labelStart = line.lastIndexOf(label, fieldEnd - label.length() - 1);
+    while (labelStart >= 0 && !isValidField(line, labelStart + label.length(), fieldEnd)) {
+      labelStart = line.lastIndexOf(label, labelStart - 1);
+    }
+    return labelStart;
+  }
+
+  private static boolean isValidField(String line, int fieldStart, int fieldEnd) {
+    return fieldStart < fieldEnd && line.charAt(fieldStart) != ',';
+  }
+
   private static Integer parseInteger(String numberString) {
     if ("UNKNOWN".equals(numberString.trim())) {
       return null;
@@ -134,7 +175,8 @@ public class MigrationResult {
     return result;
   }
 
-  private ResultStatus computeStatus() {
+  // Classifies the result. Callers that need the status more than once should keep the outcome.
+  public ResultStatus computeStatus() {
 
     // Determine if errors occurred according to the counters.
     final boolean errorsOccurred = errorRecords != null && errorRecords > 0;
@@ -175,10 +217,14 @@ public class MigrationResult {
 
   // Whether the run was successful (i.e. completed normally, no missing records or errors).
   public boolean wasSuccessful() {
+    return wasSuccessful(computeStatus());
+  }
+
+  // As wasSuccessful, but with the status as obtained from computeStatus.
+  public boolean wasSuccessful(ResultStatus status) {
     final boolean proceedInCaseOfErrors =
         pluginType == PluginType.OAIPMH_HARVEST && IGNORE_HARVEST_ERRORS_DATASETS
             .contains(datasetId);
-    final ResultStatus status = computeStatus();
     return proceedInCaseOfErrors || ResultStatus.EMPTY == status || ResultStatus.SUCCESS == status;
   }
 
@@ -209,7 +255,12 @@ public class MigrationResult {
 
   // Whether this dataset can go to the next plugin: was it successful, non-empty and definitive?
   public boolean readyForNextPlugin() {
-    return wasSuccessful() && computeStatus() != ResultStatus.EMPTY && !shouldDoAgain();
+    return readyForNextPlugin(computeStatus());
+  }
+
+  // As readyForNextPlugin, but with the status as obtained from computeStatus.
+  public boolean readyForNextPlugin(ResultStatus status) {
+    return wasSuccessful(status) && status != ResultStatus.EMPTY && !shouldDoAgain();
   }
 
   public String toSummaryWithStatus() {
@@ -0,0 +1,28 @@
+package eu.europeana.metis.migration.results.model;
+
+// The result of a dataset for a plugin type at two points in the run history. Either result can be
+// null if the dataset had no result at that point.
+public class MigrationResultChange {
+
+  private final String datasetId;
+  private final MigrationResult before;
+  private final MigrationResult after;
+
+  public MigrationResultChange(String datasetId, MigrationResult before, MigrationResult after) {
+    this.datasetId = datasetId;
+    this.before = before;
+    this.after = after;
+  }
+
+  public String getDatasetId() {
+    return datasetId;
+  }
+
+  public MigrationResult getBefore() {
+    return before;
+  }
+
+  public MigrationResult getAfter() {
+    return after;
+  }
+}
@@ -0,0 +1,236 @@
+package eu.europeana.metis.migration.results.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Column store for the results of one plugin type, with at most one result per dataset. The counts
+ * are kept in int arrays, the enums as ordinals and the run IDs as codes in a dictionary. The ID
+ * strings are interned, as the same IDs occur in the tables of all plugin types and runs. New rows
+ * are appended and found again through a hash index on the dataset ID. The index that sorts the
+ * rows by dataset ID is only built when the results are iterated, and again after rows were added.
+ * The results are presented as a map of {@link MigrationResult} objects that are created on access.
+ */
+class MigrationResultTable {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int NULL_VALUE = -1;
+  private static final int EMPTY_SLOT = -1;
+
+  private final List<String> runIds = new ArrayList<>();
+  private final Map<String, Integer> runIdCodes = new HashMap<>();
+
+  private int size = 0;
+  private int[] hashIndex = newHashIndex(INITIAL_CAPACITY * 2);
+  private int[] sortedRows = null;
+  private String[] datasetIds = new String[INITIAL_CAPACITY];
+  private int[] runIdColumn = new int[INITIAL_CAPACITY];
+  private DatasetInfo[] datasetInfoColumn = new DatasetInfo[INITIAL_CAPACITY];
+  private String[] ecloudDatasetIdColumn = new String[INITIAL_CAPACITY];
+  private String[] executionIdColumn = new String[INITIAL_CAPACITY];
+  private String[] externalTaskIdColumn = new String[INITIAL_CAPACITY];
+  private byte[] pluginStatusColumn = new byte[INITIAL_CAPACITY];
+  private byte[] taskStatusColumn = new byte[INITIAL_CAPACITY];
+  private int[] expectedRecordsColumn = new int[INITIAL_CAPACITY];
+  private int[] processedRecordsColumn = new int[INITIAL_CAPACITY];
+  private int[] errorRecordsColumn = new int[INITIAL_CAPACITY];
+
+  private final PluginType pluginType;
+
+  MigrationResultTable(PluginType pluginType) {
+    this.pluginType = pluginType;
+  }
+
+  // Adds the result if there is no result for the dataset yet. Otherwise the given result replaces
+  // the existing one, unless the existing one is from a later run.
+  void add(MigrationResult result) {
+    final int slot = findSlot(result.getDatasetId());
+    int row = hashIndex[slot];
+    if (row != EMPTY_SLOT) {
+      if (runIds.get(runIdColumn[row]).compareTo(result.getRunId()) > 0) {
+        return;
+      }
+    } else {
+      row = size;
+      ensureCapacity(size + 1);
+      datasetIds[row] = intern(result.getDatasetId());
+      size++;
+      sortedRows = null;
+      if (size * 2 > hashIndex.length) {
+        rebuildHashIndex(hashIndex.length * 2);
+      } else {
+        hashIndex[slot] = row;
+      }
+    }
+    runIdColumn[row] = getRunIdCode(result.getRunId());
+    datasetInfoColumn[row] = result.getDatasetInfo();
+    ecloudDatasetIdColumn[row] = intern(result.getEcloudDatasetId());
+    executionIdColumn[row] = intern(result.getExecutionId());
+    externalTaskIdColumn[row] = intern(result.getExternalTaskId());
+    pluginStatusColumn[row] = (byte) result.getPluginStatus().ordinal();
+    taskStatusColumn[row] =
+        (byte) (result.getTaskStatus() == null ? NULL_VALUE : result.getTaskStatus().ordinal());
+    expectedRecordsColumn[row] = toInt(result.getExpectedRecords());
+    processedRecordsColumn[row] = toInt(result.getProcessedRecords());
+    errorRecordsColumn[row] = toInt(result.getErrorRecords());
+  }
+
+  // Returns a read-only view, sorted by dataset ID.
+  Map<String, MigrationResult> asMap() {
+    return new AbstractMap<String, MigrationResult>() {
+
+      @Override
+      public Set<Entry<String, MigrationResult>> entrySet() {
+        return new AbstractSet<Entry<String, MigrationResult>>() {
+
+          @Override
+          public Iterator<Entry<String, MigrationResult>> iterator() {
+            return new Iterator<Entry<String, MigrationResult>>() {
+              private final int[] rows = getSortedRows();
+              private int position = 0;
+
+              @Override
+              public boolean hasNext() {
+                return position < rows.length;
+              }
+
+              @Override
+              public Entry<String, MigrationResult> next() {
+                if (!hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                final int row = rows[position];
+                position++;
+                return new SimpleImmutableEntry<>(datasetIds[row], getResult(row));
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return size;
+          }
+        };
+      }
+
+      @Override
+      public MigrationResult get(Object key) {
+        if (!(key instanceof String)) {
+          return null;
+        }
+        final int row = findRow((String) key);
+        return row == EMPTY_SLOT ? null : getResult(row);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return key instanceof String && findRow((String) key) != EMPTY_SLOT;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private MigrationResult getResult(int row) {
+    final byte taskStatus = taskStatusColumn[row];
+    return new MigrationResult(runIds.get(runIdColumn[row]), datasetInfoColumn[row],
+        datasetIds[row], ecloudDatasetIdColumn[row], executionIdColumn[row], pluginType,
+        externalTaskIdColumn[row], PluginStatus.values()[pluginStatusColumn[row]],
+        toInteger(expectedRecordsColumn[row]), toInteger(processedRecordsColumn[row]),
+        toInteger(errorRecordsColumn[row]),
+        taskStatus == NULL_VALUE ? null : TaskStatus.values()[taskStatus]);
+  }
+
+  private int findRow(String datasetId) {
+    return hashIndex[findSlot(datasetId)];
+  }
+
+  // Linear probing in the hash index: returns the slot with the row of the dataset, or the empty
+  // slot where it would be added.
+  private int findSlot(String datasetId) {
+    final int mask = hashIndex.length - 1;
+    int slot = spread(datasetId.hashCode()) & mask;
+    while (hashIndex[slot] != EMPTY_SLOT && !datasetIds[hashIndex[slot]].equals(datasetId)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void rebuildHashIndex(int length) {
+    hashIndex = newHashIndex(length);
+    for (int row = 0; row < size; row++) {
+      hashIndex[findSlot(datasetIds[row])] = row;
+    }
+  }
+
+  private static int[] newHashIndex(int length) {
+    final int[] result = new int[length];
+    Arrays.fill(result, EMPTY_SLOT);
+    return result;
+  }
+
+  private static int spread(int hashCode) {
+    return hashCode ^ (hashCode >>> 16);
+  }
+
+  // Sorts the rows by dataset ID once, after which the index is reused until rows are added.
+  private int[] getSortedRows() {
+    if (sortedRows == null) {
+      sortedRows = IntStream.range(0, size).boxed()
+          .sorted(Comparator.comparing(row -> datasetIds[row])).mapToInt(Integer::intValue)
+          .toArray();
+    }
+    return sortedRows;
+  }
+
+  private int getRunIdCode(String runId) {
+    return runIdCodes.computeIfAbsent(runId, id -> {
+      runIds.add(id);
+      return runIds.size() - 1;
+    });
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= datasetIds.length) {
+      return;
+    }
+    final int newCapacity = Math.max(capacity, datasetIds.length * 2);
+    datasetIds = Arrays.copyOf(datasetIds, newCapacity);
+    runIdColumn = Arrays.copyOf(runIdColumn, newCapacity);
+    datasetInfoColumn = Arrays.copyOf(datasetInfoColumn, newCapacity);
+    ecloudDatasetIdColumn = Arrays.copyOf(ecloudDatasetIdColumn, newCapacity);
+    executionIdColumn = Arrays.copyOf(executionIdColumn, newCapacity);
+    externalTaskIdColumn = Arrays.copyOf(externalTaskIdColumn, newCapacity);
+    pluginStatusColumn = Arrays.copyOf(pluginStatusColumn, newCapacity);
+    taskStatusColumn = Arrays.copyOf(taskStatusColumn, newCapacity);
+    expectedRecordsColumn = Arrays.copyOf(expectedRecordsColumn, newCapacity);
+    processedRecordsColumn = Arrays.copyOf(processedRecordsColumn, newCapacity);
+    errorRecordsColumn = Arrays.copyOf(errorRecordsColumn, newCapacity);
+  }
+
+  // Counts are never negative: null is stored as -1 (which is also how the logs write unknowns).
+  private static int toInt(Integer value) {
+    return value == null ? NULL_VALUE : value;
+  }
+
+  private static String intern(String value) {
+    return value == null ? null : value.intern();
+  }
+
+  private static Integer toInteger(int value) {
+    return value == NULL_VALUE ? null : value;
+  }
+}
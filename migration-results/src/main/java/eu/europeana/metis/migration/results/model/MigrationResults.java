@@ -3,32 +3,34 @@ package eu.europeana.metis.migration.results.model;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
-import java.util.TreeMap;
 
 public class MigrationResults {
 
-  private final EnumMap<PluginType, Map<String, MigrationResult>> migrationResults = new EnumMap(
+  // The results are kept in a column store per plugin type, instead of one object per result.
+  private final EnumMap<PluginType, MigrationResultTable> migrationResults = new EnumMap<>(
       PluginType.class);
 
   public void add(MigrationResult migrationResult) {
 
-    // Get or create the map for the specific pluginType.
-    final Map<String, MigrationResult> mapToAddTo = migrationResults
-        .computeIfAbsent(migrationResult.getPluginType(), k -> new TreeMap<>());
+    // Get or create the table for the specific pluginType.
+    final MigrationResultTable tableToAddTo = migrationResults
+        .computeIfAbsent(migrationResult.getPluginType(), MigrationResultTable::new);
 
-    // Add if not present or if an older value is present.
-    mapToAddTo.merge(migrationResult.getDatasetId(), migrationResult, this::chooseNewer);
+    // Add if not present or if an older value is present. Here we assume that the run IDs are
+    // strictly increasing.
+    tableToAddTo.add(migrationResult);
   }
 
-  private MigrationResult chooseNewer(MigrationResult candidate1, MigrationResult candidate2) {
-    // Here we assume that the run IDs are strictly increasing.
-    final int comparison = candidate1.getRunId().compareTo(candidate2.getRunId());
-    return comparison > 0 ? candidate1 : candidate2;
+  // Adds all results of the other instance, in the same way as add. Merging the results of several
+  // instances in a fixed order gives the same outcome as adding all results to one instance.
+  public void addAll(MigrationResults other) {
+    other.migrationResults.values()
+        .forEach(resultsForPluginType -> resultsForPluginType.asMap().values().forEach(this::add));
   }
 
-  // Result will be sorted due to the use of the tree map.
+  // Result will be sorted by dataset ID. The map is a read-only view on the stored results.
   public Map<String, MigrationResult> getMigrationResults(PluginType pluginType) {
-    return Collections
-        .unmodifiableMap(migrationResults.getOrDefault(pluginType, Collections.emptyMap()));
+    final MigrationResultTable table = migrationResults.get(pluginType);
+    return table == null ? Collections.emptyMap() : table.asMap();
   }
 }
@@ -0,0 +1,73 @@
+package eu.europeana.metis.migration.results.report;
+
+import eu.europeana.metis.migration.results.model.MigrationResult;
+import eu.europeana.metis.migration.results.model.MigrationResult.ResultStatus;
+import eu.europeana.metis.migration.results.model.PluginType;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The results of one dataset for all plugin types, each classified once. Report definitions
+ * receive this instead of looking up the results and computing the statuses themselves.
+ */
+public class DatasetResults {
+
+  private final String datasetId;
+  private final Map<PluginType, MigrationResult> results;
+  private final Map<PluginType, ResultStatus> statuses = new EnumMap<>(PluginType.class);
+
+  DatasetResults(String datasetId, Map<PluginType, MigrationResult> results) {
+    this.datasetId = datasetId;
+    this.results = results;
+    results.forEach((pluginType, result) -> statuses.put(pluginType, result.computeStatus()));
+  }
+
+  public String getDatasetId() {
+    return datasetId;
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @return the result for the plugin type, or null if there is none.
+   */
+  public MigrationResult getResult(PluginType pluginType) {
+    return results.get(pluginType);
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @return the status of the result for the plugin type, or null if there is no result.
+   */
+  public ResultStatus getStatus(PluginType pluginType) {
+    return statuses.get(pluginType);
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @param status the status.
+   * @return whether there is a result for the plugin type and it has the given status.
+   */
+  public boolean hasStatus(PluginType pluginType, ResultStatus status) {
+    return status == statuses.get(pluginType);
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @return whether there is a result for the plugin type and it was successful (see {@link
+   * MigrationResult#wasSuccessful()}).
+   */
+  public boolean wasSuccessful(PluginType pluginType) {
+    final MigrationResult result = results.get(pluginType);
+    return result != null && result.wasSuccessful(statuses.get(pluginType));
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @return whether there is a result for the plugin type and it is ready for the next plugin (see
+   * {@link MigrationResult#readyForNextPlugin()}).
+   */
+  public boolean readyForNextPlugin(PluginType pluginType) {
+    final MigrationResult result = results.get(pluginType);
+    return result != null && result.readyForNextPlugin(statuses.get(pluginType));
+  }
+}
@@ -0,0 +1,49 @@
+package eu.europeana.metis.migration.results.report;
+
+import eu.europeana.metis.report.ReportColumn;
+import eu.europeana.metis.report.ReportFormat;
+import eu.europeana.metis.report.ReportWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A report that is written to a file in one of the {@link ReportFormat}s, with fixed columns.
+ */
+public class FileReportDefinition implements ReportDefinition {
+
+  private final String fileWithoutExtension;
+  private final ReportFormat format;
+  private final List<ReportColumn> columns;
+  private final Function<DatasetResults, List<String[]>> rowCreator;
+
+  /**
+   * Constructor.
+   *
+   * @param fileWithoutExtension the file to write to. The extension of the format is appended.
+   * @param format the format of the report.
+   * @param columns the columns of the report.
+   * @param rowCreator creates the rows for a dataset (see {@link #createRows(DatasetResults)}).
+   */
+  public FileReportDefinition(String fileWithoutExtension, ReportFormat format,
+      List<ReportColumn> columns, Function<DatasetResults, List<String[]>> rowCreator) {
+    this.fileWithoutExtension = fileWithoutExtension;
+    this.format = format;
+    this.columns = new ArrayList<>(columns);
+    this.rowCreator = rowCreator;
+  }
+
+  @Override
+  public ReportWriter createWriter() throws IOException {
+    return format.createWriter(
+        Files.newOutputStream(Paths.get(fileWithoutExtension + format.getExtension())), columns);
+  }
+
+  @Override
+  public List<String[]> createRows(DatasetResults datasetResults) {
+    return rowCreator.apply(datasetResults);
+  }
+}
@@ -0,0 +1,32 @@
+package eu.europeana.metis.migration.results.report;
+
+import eu.europeana.metis.report.ReportWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the first value of each row on a line of its own, without header. This is the format of
+ * lists of dataset IDs such as skip files.
+ */
+public class LineReportWriter implements ReportWriter {
+
+  private final BufferedWriter writer;
+
+  public LineReportWriter(OutputStream outputStream) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void writeRow(String[] row) throws IOException {
+    writer.write(row.length == 0 ? "" : row[0]);
+    writer.newLine();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
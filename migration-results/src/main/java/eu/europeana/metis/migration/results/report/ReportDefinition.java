@@ -0,0 +1,29 @@
+package eu.europeana.metis.migration.results.report;
+
+import eu.europeana.metis.report.ReportWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A report that is computed by the {@link ReportEngine}: it creates its writer and it turns the
+ * results of each dataset into zero or more rows.
+ */
+public interface ReportDefinition {
+
+  /**
+   * Creates the writer for the report. The engine closes the writer when the report is done.
+   *
+   * @return the writer.
+   * @throws IOException in case the writer could not be created.
+   */
+  ReportWriter createWriter() throws IOException;
+
+  /**
+   * Creates the rows for a dataset. This method is called for each dataset in order of dataset ID,
+   * always from the same thread.
+   *
+   * @param datasetResults the results of the dataset.
+   * @return the rows. Can be empty, but not null.
+   */
+  List<String[]> createRows(DatasetResults datasetResults);
+}
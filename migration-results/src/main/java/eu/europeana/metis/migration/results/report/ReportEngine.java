@@ -0,0 +1,185 @@
+package eu.europeana.metis.migration.results.report;
+
+import eu.europeana.metis.migration.results.model.MigrationResult;
+import eu.europeana.metis.migration.results.model.MigrationResults;
+import eu.europeana.metis.migration.results.model.PluginType;
+import eu.europeana.metis.report.ReportWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes a number of reports in one traversal of the migration results. The results of all
+ * plugin types are visited together per dataset, in order of dataset ID, and each result is
+ * classified only once (see {@link DatasetResults}). The rows of every report are handed to a
+ * thread of its own that writes them, so that the reports are written concurrently.
+ */
+public class ReportEngine {
+
+  private static final int ROWS_PER_CHUNK = 1000;
+  private static final int CHUNKS_PER_QUEUE = 16;
+
+  // Marks the end of the rows of a report. Compared by identity.
+  private static final List<String[]> END_OF_ROWS = new ArrayList<>();
+
+  private final List<ReportDefinition> definitions;
+
+  public ReportEngine(List<ReportDefinition> definitions) {
+    this.definitions = new ArrayList<>(definitions);
+  }
+
+  /**
+   * Computes and writes the reports.
+   *
+   * @param migrationResults the results to report on.
+   * @return the statistics of the results.
+   * @throws IOException in case one of the reports could not be written.
+   * @throws InterruptedException if the thread is interrupted while waiting for the writers.
+   */
+  public ReportStatistics run(MigrationResults migrationResults)
+      throws IOException, InterruptedException {
+
+    // Create the writers (here, so that a report that cannot be created stops everything).
+    final List<ReportWriter> writers = new ArrayList<>(definitions.size());
+    try {
+      for (ReportDefinition definition : definitions) {
+        writers.add(definition.createWriter());
+      }
+    } catch (IOException | RuntimeException e) {
+      for (ReportWriter writer : writers) {
+        writer.close();
+      }
+      throw e;
+    }
+
+    // Start a writing thread for each report.
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, writers.size()));
+    final List<BlockingQueue<List<String[]>>> queues = new ArrayList<>(writers.size());
+    final List<Future<Void>> futures = new ArrayList<>(writers.size());
+    for (ReportWriter writer : writers) {
+      final BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<>(CHUNKS_PER_QUEUE);
+      queues.add(queue);
+      futures.add(executor.submit(() -> writeRows(queue, writer)));
+    }
+
+    // Traverse the results and hand the rows to the writing threads.
+    final ReportStatistics statistics = new ReportStatistics();
+    try {
+      final List<List<String[]>> chunks = new ArrayList<>(definitions.size());
+      definitions.forEach(definition -> chunks.add(new ArrayList<>(ROWS_PER_CHUNK)));
+      final Iterator<DatasetResults> iterator = iterate(migrationResults);
+      while (iterator.hasNext()) {
+        final DatasetResults datasetResults = iterator.next();
+        statistics.add(datasetResults);
+        for (int i = 0; i < definitions.size(); i++) {
+          chunks.get(i).addAll(definitions.get(i).createRows(datasetResults));
+          if (chunks.get(i).size() >= ROWS_PER_CHUNK) {
+            send(queues.get(i), futures.get(i), chunks.get(i));
+            chunks.set(i, new ArrayList<>(ROWS_PER_CHUNK));
+          }
+        }
+      }
+      for (int i = 0; i < definitions.size(); i++) {
+        send(queues.get(i), futures.get(i), chunks.get(i));
+        send(queues.get(i), futures.get(i), END_OF_ROWS);
+      }
+      for (Future<Void> future : futures) {
+        await(future);
+      }
+    } finally {
+      // In case of failure, this stops the writers that are still waiting for rows.
+      executor.shutdownNow();
+    }
+    return statistics;
+  }
+
+  private static Void writeRows(BlockingQueue<List<String[]>> queue, ReportWriter writer)
+      throws IOException, InterruptedException {
+    try (ReportWriter writerToClose = writer) {
+      List<String[]> chunk;
+      while ((chunk = queue.take()) != END_OF_ROWS) {
+        for (String[] row : chunk) {
+          writerToClose.writeRow(row);
+        }
+      }
+    }
+    return null;
+  }
+
+  // Hands the chunk to the writer. If the writer has stopped, its error is thrown instead.
+  private static void send(BlockingQueue<List<String[]>> queue, Future<Void> future,
+      List<String[]> chunk) throws IOException, InterruptedException {
+    while (!queue.offer(chunk, 1, TimeUnit.SECONDS)) {
+      if (future.isDone()) {
+        await(future);
+        throw new IllegalStateException("Report writer stopped before all rows were written.");
+      }
+    }
+  }
+
+  private static void await(Future<Void> future) throws IOException, InterruptedException {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException("Report writer failed.", e.getCause());
+    }
+  }
+
+  // Merges the (sorted) results of all plugin types into one sequence of datasets.
+  private static Iterator<DatasetResults> iterate(MigrationResults migrationResults) {
+    final PluginType[] pluginTypes = PluginType.values();
+    final List<Iterator<Entry<String, MigrationResult>>> iterators = new ArrayList<>();
+    final List<Entry<String, MigrationResult>> heads = new ArrayList<>();
+    for (PluginType pluginType : pluginTypes) {
+      final Iterator<Entry<String, MigrationResult>> iterator = migrationResults
+          .getMigrationResults(pluginType).entrySet().iterator();
+      iterators.add(iterator);
+      heads.add(iterator.hasNext() ? iterator.next() : null);
+    }
+    return new Iterator<DatasetResults>() {
+
+      @Override
+      public boolean hasNext() {
+        return heads.stream().anyMatch(head -> head != null);
+      }
+
+      @Override
+      public DatasetResults next() {
+        String datasetId = null;
+        for (Entry<String, MigrationResult> head : heads) {
+          if (head != null && (datasetId == null || head.getKey().compareTo(datasetId) < 0)) {
+            datasetId = head.getKey();
+          }
+        }
+        if (datasetId == null) {
+          throw new NoSuchElementException();
+        }
+        final Map<PluginType, MigrationResult> results = new EnumMap<>(PluginType.class);
+        for (int i = 0; i < pluginTypes.length; i++) {
+          final Entry<String, MigrationResult> head = heads.get(i);
+          if (head != null && head.getKey().equals(datasetId)) {
+            results.put(pluginTypes[i], head.getValue());
+            heads.set(i, iterators.get(i).hasNext() ? iterators.get(i).next() : null);
+          }
+        }
+        return new DatasetResults(datasetId, Collections.unmodifiableMap(results));
+      }
+    };
+  }
+}
@@ -0,0 +1,60 @@
+package eu.europeana.metis.migration.results.report;
+
+import eu.europeana.metis.migration.results.model.MigrationResult;
+import eu.europeana.metis.migration.results.model.MigrationResult.ResultStatus;
+import eu.europeana.metis.migration.results.model.PluginType;
+
+/**
+ * The number of results and processed records per plugin type and status, as counted by the
+ * {@link ReportEngine} during its traversal.
+ */
+public class ReportStatistics {
+
+  private final long[][] resultCounts =
+      new long[PluginType.values().length][ResultStatus.values().length];
+  private final long[][] recordCounts =
+      new long[PluginType.values().length][ResultStatus.values().length];
+
+  void add(DatasetResults datasetResults) {
+    for (PluginType pluginType : PluginType.values()) {
+      final ResultStatus status = datasetResults.getStatus(pluginType);
+      if (status != null) {
+        final MigrationResult result = datasetResults.getResult(pluginType);
+        resultCounts[pluginType.ordinal()][status.ordinal()]++;
+        if (result.getProcessedRecords() != null) {
+          recordCounts[pluginType.ordinal()][status.ordinal()] += result.getProcessedRecords();
+        }
+      }
+    }
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @return the number of results for the plugin type.
+   */
+  public long getResultCount(PluginType pluginType) {
+    long total = 0;
+    for (long count : resultCounts[pluginType.ordinal()]) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @param status the status.
+   * @return the number of results for the plugin type with the status.
+   */
+  public long getResultCount(PluginType pluginType, ResultStatus status) {
+    return resultCounts[pluginType.ordinal()][status.ordinal()];
+  }
+
+  /**
+   * @param pluginType the plugin type.
+   * @param status the status.
+   * @return the number of processed records of the results for the plugin type with the status.
+   */
+  public long getRecordCount(PluginType pluginType, ResultStatus status) {
+    return recordCounts[pluginType.ordinal()][status.ordinal()];
+  }
+}
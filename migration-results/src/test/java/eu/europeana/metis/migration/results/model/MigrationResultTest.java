@@ -0,0 +1,130 @@
+package eu.europeana.metis.migration.results.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class MigrationResultTest {
+
+  // The pattern with which the lines used to be parsed, before the tokenizer replaced it.
+  private static final Pattern OLD_LINE_PATTERN = Pattern.compile(
+      ".*?- datasetId: ([^,].*)"
+          + ", EcloudDatasetId: ([^,].*)"
+          + ", ExecutionId: ([^,].*)"
+          + ", PluginType: ([^,].*)"
+          + ", ExternalTaskId: ([^,].*)"
+          + ", PluginStatus: ([^,].*)"
+          + ", ExpectedRecords: ([^,].*)"
+          + ", ProcessedRecords: ([^,].*)"
+          + ", ErrorRecords: ([^,].*)"
+          + ", TaskStatus: ([^,].*)"
+          + ".*");
+
+  private static final String PREFIX = "2018-06-12T10:15:30.123+02:00 INFO  "
+      + "eu.europeana.metis.datasets.execution.utilities.ExecutorManager:267 [pool-1-thread-3] - ";
+
+  private static final String[] REAL_LINES = {
+      PREFIX + "datasetId: 2048437, EcloudDatasetId: 4f2b6d4e-3d87-4d1a-9e0f-8d6a4c1b2e3f, "
+          + "ExecutionId: 5b1f7c2e9a0d3e2b4c6a8f10, PluginType: OAIPMH_HARVEST, "
+          + "ExternalTaskId: -4589301762243051892, PluginStatus: FINISHED, ExpectedRecords: 1200, "
+          + "ProcessedRecords: 1200, ErrorRecords: 0, TaskStatus: PROCESSED",
+      PREFIX + "datasetId: 916113, EcloudDatasetId: 0a9c1e2d-5b6f-4a7e-8c9d-0e1f2a3b4c5d, "
+          + "ExecutionId: 5b1f7c2e9a0d3e2b4c6a8f11, PluginType: PREVIEW, "
+          + "ExternalTaskId: 7730012258833915006, PluginStatus: CANCELLED, ExpectedRecords: -1, "
+          + "ProcessedRecords: 15, ErrorRecords: UNKNOWN, TaskStatus: null",
+      PREFIX + "datasetId: 9200231, EcloudDatasetId: 1b2c3d4e-5f6a-4b7c-8d9e-0f1a2b3c4d5e, "
+          + "ExecutionId: 5b1f7c2e9a0d3e2b4c6a8f12, PluginType: PUBLISH, "
+          + "ExternalTaskId: 118736455102934, PluginStatus: FAILED, ExpectedRecords: 80, "
+          + "ProcessedRecords: 79, ErrorRecords: 1, TaskStatus: DROPPED"
+  };
+
+  private static final String[] FIELD_LABELS = {"- datasetId: ", ", EcloudDatasetId: ",
+      ", ExecutionId: ", ", PluginType: ", ", ExternalTaskId: ", ", PluginStatus: ",
+      ", ExpectedRecords: ", ", ProcessedRecords: ", ", ErrorRecords: ", ", TaskStatus: "};
+
+  private static void assertSameAsOldPattern(String line) {
+    final Matcher matcher = OLD_LINE_PATTERN.matcher(line);
+    final String[] fields = MigrationResult.tokenize(line);
+    if (!matcher.matches()) {
+      assertNull(line, fields);
+      return;
+    }
+    final String[] expectedFields = new String[matcher.groupCount()];
+    for (int i = 0; i < expectedFields.length; i++) {
+      expectedFields[i] = matcher.group(i + 1);
+    }
+    assertArrayEquals(line, expectedFields, fields);
+  }
+
+  @Test
+  public void testRealLines() {
+    for (String line : REAL_LINES) {
+      assertSameAsOldPattern(line);
+    }
+    final MigrationResult result = new MigrationResult("run", datasetId -> null, REAL_LINES[1]);
+    assertEquals("916113", result.getDatasetId());
+    assertSame(PluginType.PREVIEW, result.getPluginType());
+    assertSame(PluginStatus.CANCELLED, result.getPluginStatus());
+    assertNull(result.getExpectedRecords());
+    assertEquals(Integer.valueOf(15), result.getProcessedRecords());
+    assertNull(result.getErrorRecords());
+    assertNull(result.getTaskStatus());
+  }
+
+  @Test
+  public void testLabelInsideValue() {
+    final String line = REAL_LINES[0].replace("EcloudDatasetId: 4f2b",
+        "EcloudDatasetId: 4f2b, ExecutionId: 0, TaskStatus: X");
+    assertSameAsOldPattern(line);
+    final String[] fields = MigrationResult.tokenize(line);
+    assertEquals("4f2b, ExecutionId: 0, TaskStatus: X6d4e-3d87-4d1a-9e0f-8d6a4c1b2e3f", fields[1]);
+    assertEquals("5b1f7c2e9a0d3e2b4c6a8f10", fields[2]);
+
+    final String lineWithLabelInLastValue = REAL_LINES[0] + ", TaskStatus: FAILED";
+    assertSameAsOldPattern(lineWithLabelInLastValue);
+    assertEquals("FAILED", MigrationResult.tokenize(lineWithLabelInLastValue)[9]);
+
+    final String lineWithLabelInPrefix = "[- datasetId: ] " + REAL_LINES[2];
+    assertSameAsOldPattern(lineWithLabelInPrefix);
+  }
+
+  @Test
+  public void testLinesThatDoNotMatch() {
+    final String[] lines = {"", PREFIX + "Starting execution",
+        REAL_LINES[0].replace(", PluginType: ", ", Plugin: "),
+        REAL_LINES[0].replace("ErrorRecords: 0", "ErrorRecords: "),
+        REAL_LINES[0].replace("datasetId: 2048437", "datasetId: ,2048437"),
+        REAL_LINES[0].replace("TaskStatus: PROCESSED", "TaskStatus: ")};
+    for (String line : lines) {
+      assertNull(line, MigrationResult.tokenize(line));
+      assertSameAsOldPattern(line);
+    }
+  }
+
+  @Test
+  public void testGeneratedLinesMatchOldPattern() {
+    final String[] values = {"1", "x", ",", ", ", " ", "-", "- ", ": ", "null"};
+    final Random random = new Random(42);
+    for (int n = 0; n < 20000; n++) {
+      final StringBuilder line = new StringBuilder();
+      int nextLabel = 0;
+      final int parts = 10 + random.nextInt(8);
+      for (int i = 0; i < parts; i++) {
+        if (random.nextInt(4) == 0) {
+          line.append(FIELD_LABELS[random.nextInt(FIELD_LABELS.length)]);
+        } else if (random.nextInt(3) > 0 && nextLabel < FIELD_LABELS.length) {
+          line.append(FIELD_LABELS[nextLabel]);
+          nextLabel++;
+        }
+        line.append(values[random.nextInt(values.length)]);
+      }
+      assertSameAsOldPattern(line.toString());
+    }
+  }
+}
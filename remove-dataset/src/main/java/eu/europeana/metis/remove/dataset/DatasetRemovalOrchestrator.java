@@ -0,0 +1,130 @@
+package eu.europeana.metis.remove.dataset;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes a list of datasets, a number of them at the same time. A failure to remove one dataset
+ * does not stop the removal of the others. While running, the combined progress is logged
+ * regularly. If a {@link MetisCleanupStage} is given, the Metis data of the datasets is not removed
+ * per dataset, but in bulk once the eCloud data of a batch of datasets is removed. A failure of the
+ * bulk removal is not a failure of the dataset that happened to complete the batch: it is logged,
+ * and the datasets of the batch are removed with the next batch (or in a next run).
+ */
+public class DatasetRemovalOrchestrator {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DatasetRemovalOrchestrator.class);
+
+  private static final long PROGRESS_LOG_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private final DatasetRemover datasetRemover;
+  private final int concurrentDatasets;
+  private final MetisCleanupStage metisCleanupStage;
+
+  public DatasetRemovalOrchestrator(DatasetRemover datasetRemover, int concurrentDatasets) {
+    this(datasetRemover, concurrentDatasets, null);
+  }
+
+  DatasetRemovalOrchestrator(DatasetRemover datasetRemover, int concurrentDatasets,
+      MetisCleanupStage metisCleanupStage) {
+    this.datasetRemover = datasetRemover;
+    this.concurrentDatasets = concurrentDatasets;
+    this.metisCleanupStage = metisCleanupStage;
+  }
+
+  /**
+   * Removes the datasets and waits until this is done.
+   *
+   * @param datasetIds the metis dataset IDs.
+   * @return the progress at the end of the removal.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  public RemovalProgress removeAll(List<String> datasetIds) throws InterruptedException {
+    final RemovalProgress removalProgress = new RemovalProgress(datasetIds.size());
+    final ExecutorService removers = Executors.newFixedThreadPool(concurrentDatasets);
+    final Thread logThread = new Thread(() -> regularProgressLog(removalProgress));
+    logThread.start();
+    try {
+      int count = 0;
+      for (String datasetId : datasetIds) {
+        count++;
+        final int datasetNumber = count;
+        removers.execute(
+            () -> remove(datasetId, datasetNumber, datasetIds.size(), removalProgress));
+      }
+      removers.shutdown();
+      while (!removers.awaitTermination(1, TimeUnit.MINUTES)) {
+        // Keep waiting: progress is logged by the log thread.
+      }
+      if (metisCleanupStage != null) {
+        try {
+          metisCleanupStage.flush();
+        } catch (IOException | RuntimeException e) {
+          LOGGER.error("Bulk removal of the Metis data of {} datasets failed: run again to retry.",
+              metisCleanupStage.getPendingCount(), e);
+        }
+        metisCleanupStage.logTotals();
+      }
+    } finally {
+      removers.shutdownNow();
+      logThread.interrupt();
+    }
+    LOGGER.info("Finished. {}", removalProgress.getSummary());
+    return removalProgress;
+  }
+
+  private void remove(String datasetId, int datasetNumber, int totalDatasets,
+      RemovalProgress removalProgress) {
+    final String originalThreadName = Thread.currentThread().getName();
+    Thread.currentThread().setName("dataset-" + datasetId);
+    try {
+      LOGGER.info("Removing dataset {} of {}: {}.", datasetNumber, totalDatasets, datasetId);
+      if (metisCleanupStage != null) {
+        if (datasetRemover.removeEcloudData(datasetId, removalProgress)) {
+          removalProgress.datasetRemoved();
+          addToMetisCleanup(datasetId);
+        } else {
+          removalProgress.datasetFailed();
+        }
+      } else if (datasetRemover.removeDataset(datasetId, removalProgress)) {
+        removalProgress.datasetRemoved();
+      } else {
+        removalProgress.datasetFailed();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      removalProgress.datasetFailed();
+      LOGGER.warn("Removal of dataset {} was interrupted.", datasetId);
+    } catch (Exception e) {
+      removalProgress.datasetFailed();
+      LOGGER.error("Removal of dataset {} failed: run again to retry.", datasetId, e);
+    } finally {
+      Thread.currentThread().setName(originalThreadName);
+    }
+  }
+
+  private void addToMetisCleanup(String datasetId) {
+    try {
+      metisCleanupStage.add(datasetId);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Bulk removal of the Metis data of {} datasets failed: trying again with the "
+          + "next batch.", metisCleanupStage.getPendingCount(), e);
+    }
+  }
+
+  private static void regularProgressLog(RemovalProgress removalProgress) {
+    while (true) {
+      try {
+        Thread.sleep(PROGRESS_LOG_INTERVAL_IN_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+      LOGGER.info("Progress: {}", removalProgress.getSummary());
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package eu.europeana.metis.remove.dataset;
 
 import eu.europeana.cloud.common.model.Representation;
+import eu.europeana.cloud.common.response.ResultSlice;
 import eu.europeana.cloud.mcs.driver.DataSetServiceClient;
 import eu.europeana.cloud.mcs.driver.RecordServiceClient;
+import eu.europeana.cloud.service.mcs.exception.DataSetNotExistsException;
 import eu.europeana.cloud.service.mcs.exception.MCSException;
 import eu.europeana.metis.core.dao.DatasetDao;
 import eu.europeana.metis.core.dao.DatasetXsltDao;
@@ -11,8 +13,10 @@ import eu.europeana.metis.core.dao.WorkflowDao;
 import eu.europeana.metis.core.dao.WorkflowExecutionDao;
 import eu.europeana.metis.core.dataset.Dataset;
 import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
-import java.util.Iterator;
-import java.util.function.Consumer;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.remove.dataset.utils.ExternalService;
+import eu.europeana.metis.remove.dataset.utils.RateLimiter;
+import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +27,11 @@ public class DatasetRemover {
   private final DataSetServiceClient datasetServiceClient;
   private final RecordServiceClient recordServiceClient;
   private final String providerId;
+  private final ExternalRequestExecutor<ExternalService> externalRequestExecutor;
+  private final EcloudRequestExecutor ecloudRequestExecutor;
+  private final RemovalJournal removalJournal;
+  private final int deletionParallelism;
+  private final RateLimiter deletionRateLimiter;
 
   private final DatasetDao datasetDao;
   private final WorkflowDao workflowDao;
@@ -32,11 +41,19 @@ public class DatasetRemover {
 
   public DatasetRemover(MorphiaDatastoreProvider morphiaDatastoreProvider,
       DataSetServiceClient datasetServiceClient, RecordServiceClient recordServiceClient,
-      String providerId) {
+      String providerId, ExternalRequestExecutor<ExternalService> externalRequestExecutor,
+      int maxOutstandingEcloudRequests, int deletionParallelism,
+      double deletionMaxRequestsPerSecond, RemovalJournal removalJournal) {
 
     this.datasetServiceClient = datasetServiceClient;
     this.recordServiceClient = recordServiceClient;
     this.providerId = providerId;
+    this.externalRequestExecutor = externalRequestExecutor;
+    this.ecloudRequestExecutor = new EcloudRequestExecutor(externalRequestExecutor,
+        maxOutstandingEcloudRequests);
+    this.deletionParallelism = deletionParallelism;
+    this.deletionRateLimiter = new RateLimiter(deletionMaxRequestsPerSecond);
+    this.removalJournal = removalJournal;
 
     this.datasetDao = new DatasetDao(morphiaDatastoreProvider, null);
     this.datasetXsltDao = new DatasetXsltDao(morphiaDatastoreProvider);
@@ -45,13 +62,55 @@ public class DatasetRemover {
     this.scheduledWorkflowDao = new ScheduledWorkflowDao(morphiaDatastoreProvider);
   }
 
-  public void removeDataset(String metisDatasetId) throws MCSException {
+  /**
+   * Removes a dataset. This method can be called for different datasets at the same time: the
+   * limits on eCloud requests apply to all of them together.
+   *
+   * @param metisDatasetId the metis dataset ID.
+   * @param removalProgress the progress to which the representation counts are added.
+   * @return whether the dataset is removed (or did not exist). If false, the removal can be
+   * completed by a rerun.
+   * @throws MCSException in case of an eCloud error that could not be resolved by retrying.
+   * @throws InterruptedException if the thread is interrupted.
+   * @throws IOException in case the journal could not be written.
+   */
+  public boolean removeDataset(String metisDatasetId, RemovalProgress removalProgress)
+      throws MCSException, InterruptedException, IOException {
+    return removeDataset(metisDatasetId, removalProgress, true);
+  }
+
+  /**
+   * Removes the data of a dataset in eCloud, leaving the data in Metis to be removed in bulk by a
+   * {@link MetisCleanupStage}. This method can be called for different datasets at the same time.
+   *
+   * @param metisDatasetId the metis dataset ID.
+   * @param removalProgress the progress to which the representation counts are added.
+   * @return whether the eCloud data is removed (or the dataset did not exist). If false, the
+   * removal can be completed by a rerun.
+   * @throws MCSException in case of an eCloud error that could not be resolved by retrying.
+   * @throws InterruptedException if the thread is interrupted.
+   * @throws IOException in case the journal could not be written.
+   */
+  public boolean removeEcloudData(String metisDatasetId, RemovalProgress removalProgress)
+      throws MCSException, InterruptedException, IOException {
+    return removeDataset(metisDatasetId, removalProgress, false);
+  }
+
+  private boolean removeDataset(String metisDatasetId, RemovalProgress removalProgress,
+      boolean includingMetisData) throws MCSException, InterruptedException, IOException {
+
+    // If a previous run completed the removal, we are done.
+    if (removalJournal.isCompleted(metisDatasetId, RemovalPhase.DATASET)) {
+      LOGGER.info("  * Dataset {} was already removed in a previous run.", metisDatasetId);
+      return true;
+    }
 
     // Get the dataset: if it doesn't exist, we are done.
-    final Dataset dataset = datasetDao.getDatasetByDatasetId(metisDatasetId);
+    final Dataset dataset = externalRequestExecutor
+        .execute(ExternalService.MONGO, () -> datasetDao.getDatasetByDatasetId(metisDatasetId));
     if (dataset == null) {
       LOGGER.info("  * Cannot remove dataset {}: dataset does not exist.", metisDatasetId);
-      return;
+      return true;
     }
 
     // JV: Check that no processing is currently happening on this dataset (or cancel all tasks).
@@ -64,61 +123,107 @@ public class DatasetRemover {
     // JV: Check if the ecloud ID exists (has been created): otherwise, skip next steps.
 
     // Remove all representations of this dataset in eCloud
-    LOGGER.info("  * Removing all representations in eCloud.");
-    final Iterator<Representation> representations = datasetServiceClient
-        .getRepresentationIterator(providerId, ecloudDatasetId);
-    final RecordDeleter recordDeleter = new RecordDeleter();
-    final Thread logThread = new Thread(() -> regularCountLog(recordDeleter));
-    logThread.start();
-    try {
-      representations.forEachRemaining(recordDeleter);
-    } finally {
-      logThread.interrupt();
+    if (removalJournal.isCompleted(metisDatasetId, RemovalPhase.REPRESENTATIONS)) {
+      LOGGER.info("  * Representations in eCloud were already removed in a previous run.");
+    } else if (removeRepresentations(metisDatasetId, ecloudDatasetId, removalProgress)) {
+      removalJournal.markCompleted(metisDatasetId, RemovalPhase.REPRESENTATIONS);
+    } else {
+      LOGGER.warn(
+          "  * Not removing dataset {} because not all representations could be removed: run again to retry.",
+          metisDatasetId);
+      return false;
     }
-    LOGGER.info("  * Finished removing representations: {} representations removed from eCloud.",
-        recordDeleter.count);
 
     // Remove dataset in eCloud
-    LOGGER.info("  * Removing dataset in eCloud.");
-    datasetServiceClient.deleteDataSet(providerId, ecloudDatasetId);
+    executePhase(metisDatasetId, RemovalPhase.ECLOUD_DATASET, "Removing dataset in eCloud.", () -> {
+      try {
+        ecloudRequestExecutor.execute(() -> {
+          datasetServiceClient.deleteDataSet(providerId, ecloudDatasetId);
+          return null;
+        });
+      } catch (DataSetNotExistsException e) {
+        LOGGER.info("  * Dataset in eCloud does not exist (anymore).");
+      }
+    });
+
+    // If the Metis data is removed in bulk, we are done here.
+    if (!includingMetisData) {
+      LOGGER.info("  * Finished removal of dataset {} in eCloud: Metis data is removed in bulk.",
+          metisDatasetId);
+      return true;
+    }
 
     // Removing all workflow data from Metis.
-    LOGGER.info("  * Removing all workflow data from Metis.");
-    workflowExecutionDao.deleteAllByDatasetId(metisDatasetId);
-    scheduledWorkflowDao.deleteAllByDatasetId(metisDatasetId);
-    workflowDao.deleteWorkflow(metisDatasetId);
-    datasetXsltDao.deleteAllByDatasetId(metisDatasetId);
-    datasetDao.delete(dataset);
+    executePhase(metisDatasetId, RemovalPhase.WORKFLOW_EXECUTIONS,
+        "Removing workflow executions from Metis.",
+        () -> externalRequestExecutor.execute(ExternalService.MONGO,
+            () -> workflowExecutionDao.deleteAllByDatasetId(metisDatasetId)));
+    executePhase(metisDatasetId, RemovalPhase.SCHEDULED_WORKFLOWS,
+        "Removing scheduled workflows from Metis.",
+        () -> externalRequestExecutor.execute(ExternalService.MONGO,
+            () -> scheduledWorkflowDao.deleteAllByDatasetId(metisDatasetId)));
+    executePhase(metisDatasetId, RemovalPhase.WORKFLOW, "Removing workflow from Metis.",
+        () -> externalRequestExecutor.execute(ExternalService.MONGO,
+            () -> workflowDao.deleteWorkflow(metisDatasetId)));
+    executePhase(metisDatasetId, RemovalPhase.XSLTS, "Removing XSLTs from Metis.",
+        () -> externalRequestExecutor.execute(ExternalService.MONGO,
+            () -> datasetXsltDao.deleteAllByDatasetId(metisDatasetId)));
+    executePhase(metisDatasetId, RemovalPhase.DATASET, "Removing dataset from Metis.",
+        () -> externalRequestExecutor.execute(ExternalService.MONGO, () -> {
+          datasetDao.delete(dataset);
+          return null;
+        }));
+    LOGGER.info("  * Finished removal of dataset {}.", metisDatasetId);
+    return true;
   }
 
-  private static void regularCountLog(RecordDeleter recordDeleter) {
-    while (true) {
-      try {
-        Thread.sleep(5000);
-      } catch (InterruptedException e) {
-        return;
-      }
-      if (Thread.interrupted()) {
-        return;
-      } else {
-        LOGGER.info("        {} representations deleted.", recordDeleter.count);
-      }
+  private void executePhase(String metisDatasetId, RemovalPhase phase, String description,
+      PhaseAction action) throws MCSException, InterruptedException, IOException {
+    if (removalJournal.isCompleted(metisDatasetId, phase)) {
+      LOGGER.info("  * Skipping phase {}: already completed in a previous run.", phase);
+      return;
     }
+    LOGGER.info("  * {}", description);
+    action.execute();
+    removalJournal.markCompleted(metisDatasetId, phase);
   }
 
-  private class RecordDeleter implements Consumer<Representation> {
+  private boolean removeRepresentations(String metisDatasetId, String ecloudDatasetId,
+      RemovalProgress removalProgress) throws MCSException, InterruptedException, IOException {
+    String position = removalJournal.getRepresentationPosition(metisDatasetId);
+    if (position == null) {
+      LOGGER.info("  * Removing all representations in eCloud.");
+    } else {
+      LOGGER.info("  * Resuming removal of representations in eCloud from position {}.",
+          position);
+    }
+    try (final RepresentationDeleter representationDeleter = new RepresentationDeleter(
+        recordServiceClient, ecloudRequestExecutor, deletionParallelism, deletionRateLimiter,
+        removalProgress)) {
+      do {
+        final String startFrom = position;
+        final ResultSlice<Representation> chunk = ecloudRequestExecutor.execute(
+            () -> datasetServiceClient
+                .getDataSetRepresentationsChunk(providerId, ecloudDatasetId, startFrom));
+        representationDeleter.deleteAll(chunk.getResults());
+        position = chunk.getNextSlice();
+
+        // Only confirm positions up to which all representations were removed.
+        if (position != null && representationDeleter.getFailedCount() == 0) {
+          removalJournal.markRepresentationPosition(metisDatasetId, position);
+        }
+      } while (position != null);
+      LOGGER.info(
+          "  * Finished removing representations: {} representations removed from eCloud ({} were already removed, {} failed).",
+          representationDeleter.getDeletedCount(), representationDeleter.getAlreadyRemovedCount(),
+          representationDeleter.getFailedCount());
+      return representationDeleter.getFailedCount() == 0;
+    }
+  }
 
-    int count = 0;
+  @FunctionalInterface
+  private interface PhaseAction {
 
-    @Override
-    public void accept(Representation representation) {
-      try {
-        recordServiceClient.deleteRepresentation(representation.getCloudId(),
-            representation.getRepresentationName(), representation.getVersion());
-      } catch (MCSException e) {
-        throw new RuntimeException(e);
-      }
-      count++;
-    }
+    void execute() throws MCSException, InterruptedException;
   }
 }
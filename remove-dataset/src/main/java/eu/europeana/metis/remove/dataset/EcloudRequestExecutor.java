@@ -0,0 +1,34 @@
+package eu.europeana.metis.remove.dataset;
+
+import eu.europeana.cloud.service.mcs.exception.MCSException;
+import eu.europeana.metis.external.request.ExternalRequest;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.remove.dataset.utils.ExternalService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends requests to eCloud through the {@link ExternalRequestExecutor}, making sure that no more
+ * than a maximum number of requests are outstanding at the same time (over all threads). A request
+ * that is being retried remains outstanding.
+ */
+class EcloudRequestExecutor {
+
+  private final ExternalRequestExecutor<ExternalService> externalRequestExecutor;
+  private final Semaphore outstandingRequests;
+
+  EcloudRequestExecutor(ExternalRequestExecutor<ExternalService> externalRequestExecutor,
+      int maxOutstandingRequests) {
+    this.externalRequestExecutor = externalRequestExecutor;
+    this.outstandingRequests = new Semaphore(maxOutstandingRequests, true);
+  }
+
+  <R> R execute(ExternalRequest<R, MCSException> request)
+      throws MCSException, InterruptedException {
+    outstandingRequests.acquire();
+    try {
+      return externalRequestExecutor.executeChecked(ExternalService.ECLOUD, request);
+    } finally {
+      outstandingRequests.release();
+    }
+  }
+}
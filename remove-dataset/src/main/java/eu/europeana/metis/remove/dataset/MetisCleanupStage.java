@@ -0,0 +1,142 @@
+package eu.europeana.metis.remove.dataset;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
+import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.dataset.DatasetXslt;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import eu.europeana.metis.core.workflow.ScheduledWorkflow;
+import eu.europeana.metis.core.workflow.Workflow;
+import eu.europeana.metis.core.workflow.WorkflowExecution;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.remove.dataset.utils.ExternalService;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes the Metis data of datasets in bulk. Dataset IDs are collected until a batch is full, and
+ * then for every collection one unordered bulk write is sent that removes the documents of all
+ * datasets in the batch. The collections are processed in the same order as the phases of a
+ * single removal (the dataset itself last), and every completed phase is recorded in the journal.
+ * This class is thread-safe.
+ */
+class MetisCleanupStage {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetisCleanupStage.class);
+
+  private static final String DATASET_ID_FIELD = "datasetId";
+  private static final int DATASET_IDS_PER_QUERY = 1000;
+
+  private static final Map<RemovalPhase, Class<?>> COLLECTIONS_BY_PHASE = new EnumMap<>(
+      RemovalPhase.class);
+
+  static {
+    COLLECTIONS_BY_PHASE.put(RemovalPhase.WORKFLOW_EXECUTIONS, WorkflowExecution.class);
+    COLLECTIONS_BY_PHASE.put(RemovalPhase.SCHEDULED_WORKFLOWS, ScheduledWorkflow.class);
+    COLLECTIONS_BY_PHASE.put(RemovalPhase.WORKFLOW, Workflow.class);
+    COLLECTIONS_BY_PHASE.put(RemovalPhase.XSLTS, DatasetXslt.class);
+    COLLECTIONS_BY_PHASE.put(RemovalPhase.DATASET, Dataset.class);
+  }
+
+  private final MorphiaDatastoreProvider morphiaDatastoreProvider;
+  private final ExternalRequestExecutor<ExternalService> externalRequestExecutor;
+  private final RemovalJournal removalJournal;
+  private final int batchSize;
+
+  private final List<String> pendingDatasetIds = new ArrayList<>();
+  private final Map<RemovalPhase, Long> removedDocuments = new LinkedHashMap<>();
+
+  MetisCleanupStage(MorphiaDatastoreProvider morphiaDatastoreProvider,
+      ExternalRequestExecutor<ExternalService> externalRequestExecutor,
+      RemovalJournal removalJournal, int batchSize) {
+    this.morphiaDatastoreProvider = morphiaDatastoreProvider;
+    this.externalRequestExecutor = externalRequestExecutor;
+    this.removalJournal = removalJournal;
+    this.batchSize = batchSize;
+    COLLECTIONS_BY_PHASE.keySet().forEach(phase -> removedDocuments.put(phase, 0L));
+  }
+
+  /**
+   * Adds a dataset of which the Metis data is to be removed. If the batch is full, it is removed.
+   *
+   * @param datasetId the metis dataset ID.
+   * @throws IOException in case the journal could not be written.
+   */
+  synchronized void add(String datasetId) throws IOException {
+    pendingDatasetIds.add(datasetId);
+    if (pendingDatasetIds.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Removes the Metis data of all datasets that were added and not yet removed. If this fails, the
+   * datasets stay pending and the phases that were not completed are tried again with the next
+   * flush.
+   *
+   * @throws IOException in case the journal could not be written.
+   */
+  synchronized void flush() throws IOException {
+    if (pendingDatasetIds.isEmpty()) {
+      return;
+    }
+    LOGGER.info("Removing Metis data of {} datasets in bulk.", pendingDatasetIds.size());
+    for (Entry<RemovalPhase, Class<?>> entry : COLLECTIONS_BY_PHASE.entrySet()) {
+      final RemovalPhase phase = entry.getKey();
+      final List<String> datasetIds = pendingDatasetIds.stream()
+          .filter(datasetId -> !removalJournal.isCompleted(datasetId, phase))
+          .collect(Collectors.toList());
+      if (datasetIds.isEmpty()) {
+        continue;
+      }
+      final int removed = removeAll(entry.getValue(), datasetIds);
+      for (String datasetId : datasetIds) {
+        removalJournal.markCompleted(datasetId, phase);
+      }
+      removedDocuments.merge(phase, (long) removed, Long::sum);
+      LOGGER.info("  * Phase {}: {} documents removed for {} datasets.", phase, removed,
+          datasetIds.size());
+    }
+    pendingDatasetIds.clear();
+  }
+
+  private int removeAll(Class<?> entityClass, List<String> datasetIds) {
+    final DBCollection collection = morphiaDatastoreProvider.getDatastore()
+        .getCollection(entityClass);
+    return externalRequestExecutor.execute(ExternalService.MONGO, () -> {
+      final BulkWriteOperation bulkOperation = collection.initializeUnorderedBulkOperation();
+      for (int start = 0; start < datasetIds.size(); start += DATASET_IDS_PER_QUERY) {
+        final List<String> datasetIdsInQuery = datasetIds
+            .subList(start, Math.min(start + DATASET_IDS_PER_QUERY, datasetIds.size()));
+        bulkOperation.find(new BasicDBObject(DATASET_ID_FIELD,
+            new BasicDBObject("$in", datasetIdsInQuery))).remove();
+      }
+      return bulkOperation.execute().getRemovedCount();
+    });
+  }
+
+  /**
+   * @return the number of datasets of which the Metis data is not yet removed.
+   */
+  synchronized int getPendingCount() {
+    return pendingDatasetIds.size();
+  }
+
+  /**
+   * Logs the number of documents removed per phase (collection) so far.
+   */
+  synchronized void logTotals() {
+    LOGGER.info("Metis documents removed in bulk: {}", removedDocuments.entrySet().stream()
+        .map(entry -> entry.getKey() + ": " + entry.getValue())
+        .collect(Collectors.joining(", ")));
+  }
+}
@@ -0,0 +1,144 @@
+package eu.europeana.metis.remove.dataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the progress of dataset removals in a local append-only file, so that a rerun can skip
+ * the phases that were already completed and resume the removal of representations where it
+ * stopped.
+ * <p>Every line is an entry of tab-separated values: either a completed phase (<code>datasetId
+ * PHASE</code>) or a confirmed position in the list of representations (<code>datasetId
+ * POSITION token</code>), meaning that all representations before the token have been removed.
+ * Every entry is forced to disk before the method that adds it returns. An incomplete last line
+ * (left by a crash during a write) is removed when the journal is opened.</p>
+ */
+public class RemovalJournal implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemovalJournal.class);
+
+  private static final String POSITION = "POSITION";
+  private static final String SEPARATOR = "\t";
+  private static final byte LINE_SEPARATOR = '\n';
+
+  private final Map<String, Set<RemovalPhase>> completedPhases = new HashMap<>();
+  private final Map<String, String> representationPositions = new HashMap<>();
+  private final FileChannel channel;
+
+  /**
+   * Opens the journal, creating the file if it does not exist yet.
+   *
+   * @param file the journal file.
+   * @throws IOException in case the file could not be read or opened for writing.
+   */
+  public RemovalJournal(Path file) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    channel = FileChannel
+        .open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      load(file);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void load(Path file) throws IOException {
+    final byte[] content = Files.readAllBytes(file);
+    int lastLineEnd = content.length;
+    while (lastLineEnd > 0 && content[lastLineEnd - 1] != LINE_SEPARATOR) {
+      lastLineEnd--;
+    }
+    if (lastLineEnd < content.length) {
+      LOGGER.warn("Removing incomplete last entry from removal journal {}.", file);
+      channel.truncate(lastLineEnd);
+      channel.force(true);
+    }
+    for (String line : new String(content, 0, lastLineEnd, StandardCharsets.UTF_8).split("\n")) {
+      final String[] values = line.split(SEPARATOR);
+      if (values.length == 2) {
+        completedPhases.computeIfAbsent(values[0], key -> EnumSet.noneOf(RemovalPhase.class))
+            .add(RemovalPhase.valueOf(values[1]));
+      } else if (values.length == 3 && POSITION.equals(values[1])) {
+        representationPositions.put(values[0], values[2]);
+      } else if (!line.trim().isEmpty()) {
+        throw new IllegalStateException("Unexpected entry in removal journal: " + line);
+      }
+    }
+    channel.position(channel.size());
+  }
+
+  /**
+   * @param datasetId the metis dataset ID.
+   * @param phase the phase.
+   * @return whether the phase was completed for the dataset.
+   */
+  public synchronized boolean isCompleted(String datasetId, RemovalPhase phase) {
+    return completedPhases.getOrDefault(datasetId, EnumSet.noneOf(RemovalPhase.class))
+        .contains(phase);
+  }
+
+  /**
+   * @param datasetId the metis dataset ID.
+   * @return the last confirmed position in the representations of the dataset, or null if there
+   * is none.
+   */
+  public synchronized String getRepresentationPosition(String datasetId) {
+    return representationPositions.get(datasetId);
+  }
+
+  /**
+   * Records that a phase was completed for a dataset.
+   *
+   * @param datasetId the metis dataset ID.
+   * @param phase the phase.
+   * @throws IOException in case the entry could not be written.
+   */
+  public synchronized void markCompleted(String datasetId, RemovalPhase phase)
+      throws IOException {
+    append(datasetId + SEPARATOR + phase.name());
+    completedPhases.computeIfAbsent(datasetId, key -> EnumSet.noneOf(RemovalPhase.class))
+        .add(phase);
+  }
+
+  /**
+   * Records that all representations of a dataset before the given position have been removed.
+   *
+   * @param datasetId the metis dataset ID.
+   * @param position the position (the token of the next chunk of representations).
+   * @throws IOException in case the entry could not be written.
+   */
+  public synchronized void markRepresentationPosition(String datasetId, String position)
+      throws IOException {
+    append(datasetId + SEPARATOR + POSITION + SEPARATOR + position);
+    representationPositions.put(datasetId, position);
+  }
+
+  private void append(String entry) throws IOException {
+    final ByteBuffer buffer = ByteBuffer
+        .wrap((entry + (char) LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,14 @@
+package eu.europeana.metis.remove.dataset;
+
+/**
+ * The phases of the removal of a dataset, in the order in which they are executed.
+ */
+public enum RemovalPhase {
+  REPRESENTATIONS,
+  ECLOUD_DATASET,
+  WORKFLOW_EXECUTIONS,
+  SCHEDULED_WORKFLOWS,
+  WORKFLOW,
+  XSLTS,
+  DATASET
+}
@@ -0,0 +1,169 @@
+package eu.europeana.metis.remove.dataset;
+
+import eu.europeana.cloud.common.model.Representation;
+import eu.europeana.cloud.common.response.ResultSlice;
+import eu.europeana.cloud.mcs.driver.DataSetServiceClient;
+import eu.europeana.cloud.service.mcs.exception.DataSetNotExistsException;
+import eu.europeana.cloud.service.mcs.exception.MCSException;
+import eu.europeana.metis.core.dao.DatasetDao;
+import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import eu.europeana.metis.core.workflow.ScheduledWorkflow;
+import eu.europeana.metis.core.workflow.WorkflowExecution;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.remove.dataset.utils.ExternalService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the size of the removal of a list of datasets without removing anything. For every
+ * dataset it lists the representations in eCloud (counting representations and versions) and
+ * counts the workflow executions and scheduled workflows in Metis. From the measured latency of
+ * the eCloud calls it projects the duration of the removal with the configured concurrency.
+ */
+public class RemovalPlanner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemovalPlanner.class);
+
+  private static final String DATASET_ID_FIELD = "datasetId";
+
+  private final MorphiaDatastoreProvider morphiaDatastoreProvider;
+  private final DataSetServiceClient datasetServiceClient;
+  private final String providerId;
+  private final ExternalRequestExecutor<ExternalService> externalRequestExecutor;
+  private final DatasetDao datasetDao;
+
+  private long totalVersions = 0;
+  private long totalRepresentations = 0;
+  private long totalWorkflowExecutions = 0;
+  private long totalScheduledWorkflows = 0;
+  private int existingDatasets = 0;
+  private long ecloudCalls = 0;
+  private long ecloudCallNanos = 0;
+
+  public RemovalPlanner(MorphiaDatastoreProvider morphiaDatastoreProvider,
+      DataSetServiceClient datasetServiceClient, String providerId,
+      ExternalRequestExecutor<ExternalService> externalRequestExecutor) {
+    this.morphiaDatastoreProvider = morphiaDatastoreProvider;
+    this.datasetServiceClient = datasetServiceClient;
+    this.providerId = providerId;
+    this.externalRequestExecutor = externalRequestExecutor;
+    this.datasetDao = new DatasetDao(morphiaDatastoreProvider, null);
+  }
+
+  /**
+   * Measures the datasets and logs the estimate.
+   *
+   * @param datasetIds the metis dataset IDs.
+   * @param concurrentDatasets the number of datasets that would be removed at the same time.
+   * @param deletionParallelism the number of parallel deletions per dataset.
+   * @param maxOutstandingEcloudRequests the maximum number of outstanding eCloud requests.
+   * @param deletionMaxRequestsPerSecond the maximum number of deletions per second (or 0).
+   * @throws MCSException in case of an eCloud error that could not be resolved by retrying.
+   */
+  public void plan(List<String> datasetIds, int concurrentDatasets, int deletionParallelism,
+      int maxOutstandingEcloudRequests, double deletionMaxRequestsPerSecond) throws MCSException {
+
+    int count = 0;
+    for (String datasetId : datasetIds) {
+      count++;
+      LOGGER.info("Measuring dataset {} of {}.", count, datasetIds.size());
+      measureDataset(datasetId);
+    }
+
+    // Project the duration: every version is one delete call, every dataset one more.
+    final long listingCalls = ecloudCalls;
+    final long deleteCalls = totalVersions + existingDatasets;
+    final double averageLatencyMillis = ecloudCalls == 0 ? 0
+        : ecloudCallNanos / (double) TimeUnit.MILLISECONDS.toNanos(1) / ecloudCalls;
+    final long effectiveParallelism = Math.max(1, Math.min(maxOutstandingEcloudRequests,
+        (long) Math.min(concurrentDatasets, Math.max(1, existingDatasets)) * deletionParallelism));
+    final double latencyBoundMillis =
+        (listingCalls + deleteCalls) * averageLatencyMillis / effectiveParallelism;
+    final double rateBoundMillis =
+        deletionMaxRequestsPerSecond > 0 ? deleteCalls * 1000.0 / deletionMaxRequestsPerSecond : 0;
+    final long projectedMillis = (long) Math.max(latencyBoundMillis, rateBoundMillis);
+
+    LOGGER.info("Removal plan for {} datasets ({} exist):", datasetIds.size(), existingDatasets);
+    LOGGER.info("  Representations in eCloud: {} ({} versions).", totalRepresentations,
+        totalVersions);
+    LOGGER.info("  Workflow executions: {}, scheduled workflows: {}.", totalWorkflowExecutions,
+        totalScheduledWorkflows);
+    LOGGER.info("  eCloud calls: {} listing calls and {} delete calls.", listingCalls,
+        deleteCalls);
+    LOGGER.info("  Measured eCloud latency: {} ms per call (assumed to be the same for deletes).",
+        String.format("%.1f", averageLatencyMillis));
+    LOGGER.info("  Effective parallelism: {}{}.", effectiveParallelism,
+        rateBoundMillis > latencyBoundMillis ? " (duration bound by the request rate limit)" : "");
+    LOGGER.info("  Projected duration: {}.", formatDuration(projectedMillis));
+  }
+
+  private void measureDataset(String metisDatasetId) throws MCSException {
+    final Dataset dataset = externalRequestExecutor
+        .execute(ExternalService.MONGO, () -> datasetDao.getDatasetByDatasetId(metisDatasetId));
+    if (dataset == null) {
+      LOGGER.info("  * Dataset {} does not exist.", metisDatasetId);
+      return;
+    }
+    existingDatasets++;
+
+    // Count the representations and versions in eCloud.
+    final Set<String> representations = new HashSet<>();
+    long versions = 0;
+    if (dataset.getEcloudDatasetId() != null) {
+      String position = null;
+      try {
+        do {
+          final ResultSlice<Representation> chunk = getRepresentationChunk(
+              dataset.getEcloudDatasetId(), position);
+          for (Representation representation : chunk.getResults()) {
+            representations.add(
+                representation.getCloudId() + '\t' + representation.getRepresentationName());
+            versions++;
+          }
+          position = chunk.getNextSlice();
+        } while (position != null);
+      } catch (DataSetNotExistsException e) {
+        LOGGER.info("  * Dataset in eCloud does not exist.");
+      }
+    }
+
+    // Count the Metis documents.
+    final long workflowExecutions = externalRequestExecutor.execute(ExternalService.MONGO,
+        () -> morphiaDatastoreProvider.getDatastore().createQuery(WorkflowExecution.class)
+            .field(DATASET_ID_FIELD).equal(metisDatasetId).count());
+    final long scheduledWorkflows = externalRequestExecutor.execute(ExternalService.MONGO,
+        () -> morphiaDatastoreProvider.getDatastore().createQuery(ScheduledWorkflow.class)
+            .field(DATASET_ID_FIELD).equal(metisDatasetId).count());
+
+    LOGGER.info(
+        "  * Dataset {} ({}): {} representations ({} versions), {} workflow executions, {} scheduled workflows.",
+        metisDatasetId, dataset.getDatasetName(), representations.size(), versions,
+        workflowExecutions, scheduledWorkflows);
+    totalRepresentations += representations.size();
+    totalVersions += versions;
+    totalWorkflowExecutions += workflowExecutions;
+    totalScheduledWorkflows += scheduledWorkflows;
+  }
+
+  private ResultSlice<Representation> getRepresentationChunk(String ecloudDatasetId,
+      String startFrom) throws MCSException {
+    return externalRequestExecutor.executeChecked(ExternalService.ECLOUD, () -> {
+      final long start = System.nanoTime();
+      final ResultSlice<Representation> result = datasetServiceClient
+          .getDataSetRepresentationsChunk(providerId, ecloudDatasetId, startFrom);
+      ecloudCallNanos += System.nanoTime() - start;
+      ecloudCalls++;
+      return result;
+    });
+  }
+
+  private static String formatDuration(long millis) {
+    final long seconds = TimeUnit.MILLISECONDS.toSeconds(millis);
+    return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+  }
+}
@@ -0,0 +1,76 @@
+package eu.europeana.metis.remove.dataset;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The combined progress of all dataset removals in this run. This class is thread-safe.
+ */
+public class RemovalProgress {
+
+  private final int totalDatasets;
+  private final long startTime = System.nanoTime();
+
+  private final AtomicInteger removedDatasets = new AtomicInteger();
+  private final AtomicInteger failedDatasets = new AtomicInteger();
+  private final AtomicLong deletedRepresentations = new AtomicLong();
+  private final AtomicLong failedRepresentations = new AtomicLong();
+
+  RemovalProgress(int totalDatasets) {
+    this.totalDatasets = totalDatasets;
+  }
+
+  void datasetRemoved() {
+    removedDatasets.incrementAndGet();
+  }
+
+  void datasetFailed() {
+    failedDatasets.incrementAndGet();
+  }
+
+  void representationDeleted() {
+    deletedRepresentations.incrementAndGet();
+  }
+
+  void representationFailed() {
+    failedRepresentations.incrementAndGet();
+  }
+
+  int getRemovedDatasets() {
+    return removedDatasets.get();
+  }
+
+  int getFailedDatasets() {
+    return failedDatasets.get();
+  }
+
+  /**
+   * @return a one-line summary of the progress, including the rate and the expected remaining
+   * time (based on the time the finished datasets took).
+   */
+  String getSummary() {
+    final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    final int finishedDatasets = removedDatasets.get() + failedDatasets.get();
+    final long representations = deletedRepresentations.get();
+    final double representationsPerSecond =
+        elapsedMillis > 0 ? representations * 1000.0 / elapsedMillis : 0;
+    final String eta;
+    if (finishedDatasets == 0) {
+      eta = "unknown";
+    } else {
+      final long remainingMillis =
+          elapsedMillis * (totalDatasets - finishedDatasets) / finishedDatasets;
+      eta = formatDuration(remainingMillis);
+    }
+    return String.format(
+        "Datasets: %d of %d done (%d failed). Representations: %d deleted (%d failed), %.1f per second. Elapsed: %s, ETA: %s.",
+        finishedDatasets, totalDatasets, failedDatasets.get(), representations,
+        failedRepresentations.get(), representationsPerSecond, formatDuration(elapsedMillis), eta);
+  }
+
+  private static String formatDuration(long millis) {
+    final long seconds = TimeUnit.MILLISECONDS.toSeconds(millis);
+    return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+  }
+}
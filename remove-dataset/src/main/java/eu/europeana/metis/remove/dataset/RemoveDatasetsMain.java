@@ -2,14 +2,20 @@ package eu.europeana.metis.remove.dataset;
 
 import eu.europeana.cloud.mcs.driver.DataSetServiceClient;
 import eu.europeana.cloud.mcs.driver.RecordServiceClient;
+import eu.europeana.cloud.service.mcs.exception.DataSetNotExistsException;
 import eu.europeana.cloud.service.mcs.exception.MCSException;
+import eu.europeana.cloud.service.mcs.exception.RepresentationNotExistsException;
 import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.external.request.RetryPolicy;
+import eu.europeana.metis.remove.dataset.utils.ExternalService;
 import eu.europeana.metis.remove.dataset.utils.MongoInitializer;
 import eu.europeana.metis.remove.dataset.utils.PropertiesHolder;
 import eu.europeana.metis.utils.CustomTruststoreAppender;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
@@ -23,11 +29,16 @@ public class RemoveDatasetsMain {
   private static final Logger LOGGER = LoggerFactory.getLogger(RemoveDatasetsMain.class);
 
   private static final String DATASET_IDS_FILE = "/home/jochen/Desktop/invalid_dataset_ids.log";
+  private static final String REMOVAL_JOURNAL_FILE = "/home/jochen/Desktop/dataset_removal_journal.log";
 
   private static final String CONFIGURATION_FILE = "application.properties";
 
+  private static final int MAX_REQUEST_ATTEMPTS = 10;
+  private static final long INITIAL_RETRY_DELAY_IN_MILLIS = 1000;
+  private static final long MAX_RETRY_DELAY_IN_MILLIS = 60000;
+
   public static void main(String[] args)
-      throws IOException, MCSException, TrustStoreConfigurationException {
+      throws IOException, MCSException, TrustStoreConfigurationException, InterruptedException {
 
     final List<String> datasetIds = FileUtils
         .readLines(new File(DATASET_IDS_FILE), StandardCharsets.UTF_8).stream()
@@ -55,17 +66,41 @@ public class RemoveDatasetsMain {
         propertiesHolder.ecloudMcsBaseUrl, propertiesHolder.ecloudUsername,
         propertiesHolder.ecloudPassword);
 
-    final DatasetRemover datasetRemover = new DatasetRemover(morphiaDatastoreProvider,
-        datasetServiceClient, recordServiceClient,
-        propertiesHolder.ecloudProvider);
+    // Requests that can never succeed are not retried.
+    final ExternalRequestExecutor<ExternalService> externalRequestExecutor =
+        new ExternalRequestExecutor<>(ExternalService.class, new RetryPolicy(MAX_REQUEST_ATTEMPTS,
+            INITIAL_RETRY_DELAY_IN_MILLIS, MAX_RETRY_DELAY_IN_MILLIS, 2)
+            .abortOn(DataSetNotExistsException.class)
+            .abortOn(RepresentationNotExistsException.class));
+
+    // In a dry run, only measure the datasets.
+    if (propertiesHolder.dryRun) {
+      new RemovalPlanner(morphiaDatastoreProvider, datasetServiceClient,
+          propertiesHolder.ecloudProvider, externalRequestExecutor)
+          .plan(datasetIds, propertiesHolder.concurrentDatasets,
+              propertiesHolder.deletionParallelism, propertiesHolder.ecloudMaxOutstandingRequests,
+              propertiesHolder.deletionMaxRequestsPerSecond);
+      externalRequestExecutor.logStatistics();
+      mongoInitializer.close();
+      return;
+    }
 
-    int count = 0;
-    for (String datasetId : datasetIds) {
-      count++;
-      LOGGER.info("Removing dataset {} of {}.", count, datasetIds.size());
-      datasetRemover.removeDataset(datasetId);
+    // The journal allows a rerun to continue where a previous run stopped.
+    try (final RemovalJournal removalJournal = new RemovalJournal(
+        Paths.get(REMOVAL_JOURNAL_FILE))) {
+      final DatasetRemover datasetRemover = new DatasetRemover(morphiaDatastoreProvider,
+          datasetServiceClient, recordServiceClient,
+          propertiesHolder.ecloudProvider, externalRequestExecutor,
+          propertiesHolder.ecloudMaxOutstandingRequests, propertiesHolder.deletionParallelism,
+          propertiesHolder.deletionMaxRequestsPerSecond, removalJournal);
+      final MetisCleanupStage metisCleanupStage = propertiesHolder.metisCleanupBatchSize > 0
+          ? new MetisCleanupStage(morphiaDatastoreProvider, externalRequestExecutor,
+          removalJournal, propertiesHolder.metisCleanupBatchSize) : null;
+      new DatasetRemovalOrchestrator(datasetRemover, propertiesHolder.concurrentDatasets,
+          metisCleanupStage).removeAll(datasetIds);
     }
 
+    externalRequestExecutor.logStatistics();
     mongoInitializer.close();
   }
 }
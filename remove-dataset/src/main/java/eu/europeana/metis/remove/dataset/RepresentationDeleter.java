@@ -0,0 +1,119 @@
+package eu.europeana.metis.remove.dataset;
+
+import eu.europeana.cloud.common.model.Representation;
+import eu.europeana.cloud.mcs.driver.RecordServiceClient;
+import eu.europeana.cloud.service.mcs.exception.MCSException;
+import eu.europeana.cloud.service.mcs.exception.RepresentationNotExistsException;
+import eu.europeana.metis.external.request.ExternalRequestExecutor;
+import eu.europeana.metis.remove.dataset.utils.RateLimiter;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes representations in eCloud using a number of parallel workers. The calling thread hands
+ * the representations to the workers, never getting more than a fixed number of representations
+ * ahead of them. The request rate can be limited (the limiter may be shared with other deleters).
+ * <p>Every delete is retried by the {@link ExternalRequestExecutor}. A representation that can
+ * still not be deleted is counted as failed and does not stop the deletion of the others.</p>
+ */
+class RepresentationDeleter implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RepresentationDeleter.class);
+
+  private static final int QUEUED_REPRESENTATIONS_PER_WORKER = 10;
+
+  private final RecordServiceClient recordServiceClient;
+  private final EcloudRequestExecutor ecloudRequestExecutor;
+  private final RateLimiter rateLimiter;
+  private final RemovalProgress removalProgress;
+  private final ExecutorService workers;
+  private final Semaphore queuedRepresentations;
+
+  private final AtomicLong deletedCount = new AtomicLong();
+  private final AtomicLong alreadyRemovedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+
+  RepresentationDeleter(RecordServiceClient recordServiceClient,
+      EcloudRequestExecutor ecloudRequestExecutor, int parallelism, RateLimiter rateLimiter,
+      RemovalProgress removalProgress) {
+    this.recordServiceClient = recordServiceClient;
+    this.ecloudRequestExecutor = ecloudRequestExecutor;
+    this.rateLimiter = rateLimiter;
+    this.removalProgress = removalProgress;
+    this.workers = Executors.newFixedThreadPool(parallelism);
+    this.queuedRepresentations = new Semaphore(parallelism * QUEUED_REPRESENTATIONS_PER_WORKER);
+  }
+
+  /**
+   * Deletes the given representations and waits until this is done.
+   *
+   * @param representations the representations to delete.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  void deleteAll(Collection<Representation> representations) throws InterruptedException {
+    final CountDownLatch remainingRepresentations = new CountDownLatch(representations.size());
+    for (Representation representation : representations) {
+      queuedRepresentations.acquire();
+      workers.execute(() -> {
+        try {
+          delete(representation);
+        } finally {
+          queuedRepresentations.release();
+          remainingRepresentations.countDown();
+        }
+      });
+    }
+    remainingRepresentations.await();
+  }
+
+  /**
+   * Stops the workers.
+   */
+  @Override
+  public void close() {
+    workers.shutdownNow();
+  }
+
+  private void delete(Representation representation) {
+    try {
+      rateLimiter.acquire();
+      ecloudRequestExecutor.execute(() -> {
+        recordServiceClient.deleteRepresentation(representation.getCloudId(),
+            representation.getRepresentationName(), representation.getVersion());
+        return null;
+      });
+      deletedCount.incrementAndGet();
+      removalProgress.representationDeleted();
+    } catch (RepresentationNotExistsException e) {
+      alreadyRemovedCount.incrementAndGet();
+    } catch (MCSException | RuntimeException e) {
+      failedCount.incrementAndGet();
+      removalProgress.representationFailed();
+      LOGGER.warn("        Could not delete representation {} of record {} (version {}).",
+          representation.getRepresentationName(), representation.getCloudId(),
+          representation.getVersion(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failedCount.incrementAndGet();
+      removalProgress.representationFailed();
+    }
+  }
+
+  long getDeletedCount() {
+    return deletedCount.get();
+  }
+
+  long getAlreadyRemovedCount() {
+    return alreadyRemovedCount.get();
+  }
+
+  long getFailedCount() {
+    return failedCount.get();
+  }
+}
@@ -4,6 +4,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
 
 /**
  * Contains all properties that are required for execution.
@@ -26,6 +27,13 @@ public class PropertiesHolder {
   public final String ecloudProvider;
   public final String ecloudUsername;
   public final String ecloudPassword;
+  public final int ecloudMaxOutstandingRequests;
+  public final int concurrentDatasets;
+  public final int deletionParallelism;
+  public final double deletionMaxRequestsPerSecond;
+  public final int metisCleanupBatchSize;
+
+  public final boolean dryRun;
 
   public final String truststorePath;
   public final String truststorePassword;
@@ -51,6 +59,21 @@ public class PropertiesHolder {
     ecloudProvider = properties.getProperty("ecloud.provider");
     ecloudUsername = properties.getProperty("ecloud.username");
     ecloudPassword = properties.getProperty("ecloud.password");
+    ecloudMaxOutstandingRequests = StringUtils
+        .isNotBlank(properties.getProperty("ecloud.max.outstanding.requests")) ? Integer
+        .parseInt(properties.getProperty("ecloud.max.outstanding.requests")) : Integer.MAX_VALUE;
+    concurrentDatasets = StringUtils.isNotBlank(properties.getProperty("concurrent.datasets"))
+        ? Integer.parseInt(properties.getProperty("concurrent.datasets")) : 1;
+    deletionParallelism = StringUtils.isNotBlank(properties.getProperty("deletion.parallelism"))
+        ? Integer.parseInt(properties.getProperty("deletion.parallelism")) : 1;
+    deletionMaxRequestsPerSecond = StringUtils
+        .isNotBlank(properties.getProperty("deletion.max.requests.per.second")) ? Double
+        .parseDouble(properties.getProperty("deletion.max.requests.per.second")) : 0;
+    metisCleanupBatchSize = StringUtils
+        .isNotBlank(properties.getProperty("metis.cleanup.batch.size")) ? Integer
+        .parseInt(properties.getProperty("metis.cleanup.batch.size")) : 0;
+
+    dryRun = Boolean.parseBoolean(properties.getProperty("dry.run"));
 
     truststorePath = properties.getProperty("truststore.path");
     truststorePassword = properties.getProperty("truststore.password");
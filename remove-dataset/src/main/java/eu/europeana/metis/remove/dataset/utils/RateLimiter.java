@@ -0,0 +1,45 @@
+package eu.europeana.metis.remove.dataset.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which requests are sent, by spacing them out evenly. This class is
+ * thread-safe.
+ */
+public class RateLimiter {
+
+  private final long intervalInNanos;
+  private long nextPermitTime = System.nanoTime();
+
+  /**
+   * Constructor.
+   *
+   * @param permitsPerSecond the maximum number of permits per second. If zero or negative, there
+   * is no limit.
+   */
+  public RateLimiter(double permitsPerSecond) {
+    this.intervalInNanos =
+        permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+  }
+
+  /**
+   * Waits until a permit is available.
+   *
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void acquire() throws InterruptedException {
+    if (intervalInNanos == 0) {
+      return;
+    }
+    final long permitTime;
+    synchronized (this) {
+      final long now = System.nanoTime();
+      permitTime = Math.max(now, nextPermitTime);
+      nextPermitTime = permitTime + intervalInNanos;
+    }
+    final long waitTime = permitTime - System.nanoTime();
+    if (waitTime > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitTime);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package eu.europeana.metis.remove.dataset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RemovalJournalTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path file;
+
+  @Before
+  public void setUp() {
+    file = temporaryFolder.getRoot().toPath().resolve("journal.log");
+  }
+
+  @Test
+  public void testCompletedPhasesAreSkippedAfterReopening() throws IOException {
+    try (RemovalJournal journal = new RemovalJournal(file)) {
+      journal.markCompleted("1", RemovalPhase.REPRESENTATIONS);
+      journal.markCompleted("1", RemovalPhase.ECLOUD_DATASET);
+      journal.markCompleted("2", RemovalPhase.REPRESENTATIONS);
+      assertTrue(journal.isCompleted("1", RemovalPhase.ECLOUD_DATASET));
+    }
+    try (RemovalJournal journal = new RemovalJournal(file)) {
+      assertTrue(journal.isCompleted("1", RemovalPhase.REPRESENTATIONS));
+      assertTrue(journal.isCompleted("1", RemovalPhase.ECLOUD_DATASET));
+      assertFalse(journal.isCompleted("1", RemovalPhase.WORKFLOW));
+      assertTrue(journal.isCompleted("2", RemovalPhase.REPRESENTATIONS));
+      assertFalse(journal.isCompleted("2", RemovalPhase.ECLOUD_DATASET));
+      assertFalse(journal.isCompleted("3", RemovalPhase.REPRESENTATIONS));
+    }
+  }
+
+  @Test
+  public void testRepresentationPositionIsResumed() throws IOException {
+    try (RemovalJournal journal = new RemovalJournal(file)) {
+      assertNull(journal.getRepresentationPosition("1"));
+      journal.markRepresentationPosition("1", "token-a");
+      journal.markRepresentationPosition("2", "token-x");
+      journal.markRepresentationPosition("1", "token-b");
+      assertEquals("token-b", journal.getRepresentationPosition("1"));
+    }
+    try (RemovalJournal journal = new RemovalJournal(file)) {
+      assertEquals("token-b", journal.getRepresentationPosition("1"));
+      assertEquals("token-x", journal.getRepresentationPosition("2"));
+      assertNull(journal.getRepresentationPosition("3"));
+      assertFalse(journal.isCompleted("1", RemovalPhase.REPRESENTATIONS));
+    }
+  }
+
+  @Test
+  public void testIncompleteLastLineIsRemoved() throws IOException {
+    try (RemovalJournal journal = new RemovalJournal(file)) {
+      journal.markCompleted("1", RemovalPhase.REPRESENTATIONS);
+      journal.markRepresentationPosition("2", "token-a");
+    }
+
+    // Simulate a crash in the middle of writing an entry.
+    final String completeContent = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    Files.write(file, "2\tPOSITION\ttok".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    try (RemovalJournal journal = new RemovalJournal(file)) {
+      assertEquals(completeContent,
+          new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+      assertTrue(journal.isCompleted("1", RemovalPhase.REPRESENTATIONS));
+      assertEquals("token-a", journal.getRepresentationPosition("2"));
+      journal.markCompleted("2", RemovalPhase.REPRESENTATIONS);
+    }
+    try (RemovalJournal journal = new RemovalJournal(file)) {
+      assertTrue(journal.isCompleted("2", RemovalPhase.REPRESENTATIONS));
+      assertEquals("token-a", journal.getRepresentationPosition("2"));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnexpectedEntryIsRejected() throws IOException {
+    Files.write(file, "1\tSOMETHING\tELSE\n".getBytes(StandardCharsets.UTF_8));
+    new RemovalJournal(file).close();
+  }
+}
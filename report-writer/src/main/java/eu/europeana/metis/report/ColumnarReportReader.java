@@ -0,0 +1,153 @@
+package eu.europeana.metis.report;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a report written by {@link ColumnarReportWriter}. The rows are returned in the order in
+ * which they were written, with the values formatted as they were given to the writer (absent
+ * values are returned as null).
+ */
+public class ColumnarReportReader implements Closeable {
+
+  private final DataInputStream input;
+  private final List<ReportColumn> columns;
+  private final List<List<String>> dictionaries = new ArrayList<>();
+  private boolean endReached = false;
+
+  public ColumnarReportReader(InputStream inputStream) throws IOException {
+    this.input = new DataInputStream(new BufferedInputStream(inputStream));
+    final byte[] magic = new byte[ColumnarReportWriter.MAGIC.length];
+    input.readFully(magic);
+    if (!Arrays.equals(magic, ColumnarReportWriter.MAGIC)) {
+      throw new IOException("Not a columnar report.");
+    }
+    final int version = input.readInt();
+    if (version != ColumnarReportWriter.VERSION) {
+      throw new IOException("Unsupported version of columnar report: " + version);
+    }
+    final int columnCount = input.readInt();
+    final List<ReportColumn> readColumns = new ArrayList<>(columnCount);
+    for (int i = 0; i < columnCount; i++) {
+      final String name = readString();
+      readColumns.add(new ReportColumn(name, ReportColumn.Type.values()[input.readByte()]));
+      dictionaries.add(new ArrayList<>());
+    }
+    this.columns = Collections.unmodifiableList(readColumns);
+  }
+
+  public List<ReportColumn> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Reads the next group of rows.
+   *
+   * @return the rows, or null if there are no more rows.
+   * @throws IOException in case the rows could not be read.
+   */
+  public List<String[]> readRowGroup() throws IOException {
+    if (endReached) {
+      return null;
+    }
+    final int rowCount = input.readInt();
+    if (rowCount == 0) {
+      endReached = true;
+      return null;
+    }
+    final List<String[]> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      rows.add(new String[columns.size()]);
+    }
+    for (int column = 0; column < columns.size(); column++) {
+      switch (columns.get(column).getType()) {
+        case STRING:
+          readStringColumn(rows, column);
+          break;
+        case DICTIONARY:
+          readDictionaryColumn(rows, column);
+          break;
+        case LONG:
+          readLongColumn(rows, column);
+          break;
+        default:
+          throw new IllegalStateException("Unsupported type: " + columns.get(column).getType());
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Reads all remaining rows.
+   *
+   * @return the rows.
+   * @throws IOException in case the rows could not be read.
+   */
+  public List<String[]> readAll() throws IOException {
+    final List<String[]> result = new ArrayList<>();
+    List<String[]> rowGroup;
+    while ((rowGroup = readRowGroup()) != null) {
+      result.addAll(rowGroup);
+    }
+    return result;
+  }
+
+  private void readStringColumn(List<String[]> rows, int column) throws IOException {
+    final byte[] bitmap = readPresenceBitmap(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      if (isPresent(bitmap, i)) {
+        rows.get(i)[column] = readString();
+      }
+    }
+  }
+
+  private void readDictionaryColumn(List<String[]> rows, int column) throws IOException {
+    final List<String> dictionary = dictionaries.get(column);
+    final int newEntries = input.readInt();
+    for (int i = 0; i < newEntries; i++) {
+      dictionary.add(readString());
+    }
+    for (String[] row : rows) {
+      final int index = input.readInt();
+      row[column] = index == ColumnarReportWriter.ABSENT_INDEX ? null : dictionary.get(index);
+    }
+  }
+
+  private void readLongColumn(List<String[]> rows, int column) throws IOException {
+    final byte[] bitmap = readPresenceBitmap(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      if (isPresent(bitmap, i)) {
+        rows.get(i)[column] = Long.toString(input.readLong());
+      }
+    }
+  }
+
+  private byte[] readPresenceBitmap(int rowCount) throws IOException {
+    final byte[] bitmap = new byte[(rowCount + 7) / 8];
+    input.readFully(bitmap);
+    return bitmap;
+  }
+
+  private static boolean isPresent(byte[] bitmap, int row) {
+    return (bitmap[row / 8] & (1 << (row % 8))) != 0;
+  }
+
+  private String readString() throws IOException {
+    final byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
@@ -0,0 +1,198 @@
+package eu.europeana.metis.report;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a report in a compact binary format in which the values are stored per column, in groups
+ * of rows. The layout (all numbers big-endian) is:
+ * <pre>
+ * header:     magic "RCOL", int version, int column count,
+ *             per column: string name, byte type ({@link ReportColumn.Type} ordinal)
+ * row group:  int row count (greater than 0),
+ *             per column: the column data of the rows in this group
+ * end:        int 0
+ * </pre>
+ * The column data depends on the type:
+ * <ul>
+ * <li>STRING: presence bitmap, then the strings that are present;</li>
+ * <li>DICTIONARY: int number of new dictionary entries followed by these strings, then per row an
+ * int index in the dictionary (-1 if absent). The dictionary of a column grows over the row groups:
+ * a row group only contains the entries that were not in an earlier group;</li>
+ * <li>LONG: presence bitmap, then the longs that are present. Values that are not whole numbers
+ * are refused by {@link #writeRow(String[])}.</li>
+ * </ul>
+ * A presence bitmap has one bit per row (lowest bit first) and a string is an int length followed
+ * by that many bytes of UTF-8.
+ */
+public class ColumnarReportWriter implements ReportWriter {
+
+  static final byte[] MAGIC = {'R', 'C', 'O', 'L'};
+  static final int VERSION = 1;
+  static final int ABSENT_INDEX = -1;
+
+  private static final int ROWS_PER_GROUP = 10_000;
+
+  private final DataOutputStream output;
+  private final List<ReportColumn> columns;
+  private final List<List<String>> bufferedColumns = new ArrayList<>();
+  private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+  private final List<List<String>> newDictionaryEntries = new ArrayList<>();
+  private int bufferedRows = 0;
+
+  public ColumnarReportWriter(OutputStream outputStream, List<ReportColumn> columns)
+      throws IOException {
+    this.output = new DataOutputStream(new BufferedOutputStream(outputStream));
+    this.columns = new ArrayList<>(columns);
+    output.write(MAGIC);
+    output.writeInt(VERSION);
+    output.writeInt(columns.size());
+    for (ReportColumn column : columns) {
+      writeString(output, column.getName());
+      output.writeByte(column.getType().ordinal());
+      bufferedColumns.add(new ArrayList<>(ROWS_PER_GROUP));
+      dictionaries.add(new HashMap<>());
+      newDictionaryEntries.add(new ArrayList<>());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if a value in a LONG column is not a whole number. Nothing of
+   * the row is written in that case.
+   */
+  @Override
+  public void writeRow(String[] row) throws IOException {
+    for (int i = 0; i < columns.size(); i++) {
+      final String value = i < row.length ? row[i] : null;
+      if (columns.get(i).getType() == ReportColumn.Type.LONG && !isLong(value)) {
+        throw new IllegalArgumentException(String
+            .format("Value '%s' of column '%s' is not a whole number.", value,
+                columns.get(i).getName()));
+      }
+    }
+    for (int i = 0; i < columns.size(); i++) {
+      bufferedColumns.get(i).add(i < row.length ? row[i] : null);
+    }
+    bufferedRows++;
+    if (bufferedRows == ROWS_PER_GROUP) {
+      writeRowGroup();
+    }
+  }
+
+  private void writeRowGroup() throws IOException {
+    output.writeInt(bufferedRows);
+    for (int i = 0; i < columns.size(); i++) {
+      final List<String> values = bufferedColumns.get(i);
+      switch (columns.get(i).getType()) {
+        case STRING:
+          writeStringColumn(values);
+          break;
+        case DICTIONARY:
+          writeDictionaryColumn(values, dictionaries.get(i), newDictionaryEntries.get(i));
+          break;
+        case LONG:
+          writeLongColumn(values);
+          break;
+        default:
+          throw new IllegalStateException("Unsupported type: " + columns.get(i).getType());
+      }
+      values.clear();
+    }
+    bufferedRows = 0;
+  }
+
+  private void writeStringColumn(List<String> values) throws IOException {
+    writePresenceBitmap(values);
+    for (String value : values) {
+      if (value != null) {
+        writeString(output, value);
+      }
+    }
+  }
+
+  private void writeDictionaryColumn(List<String> values, Map<String, Integer> dictionary,
+      List<String> newEntries) throws IOException {
+    final int[] indices = new int[values.size()];
+    for (int i = 0; i < indices.length; i++) {
+      final String value = values.get(i);
+      if (value == null) {
+        indices[i] = ABSENT_INDEX;
+      } else {
+        indices[i] = dictionary.computeIfAbsent(value, key -> {
+          newEntries.add(key);
+          return dictionary.size();
+        });
+      }
+    }
+    output.writeInt(newEntries.size());
+    for (String entry : newEntries) {
+      writeString(output, entry);
+    }
+    newEntries.clear();
+    for (int index : indices) {
+      output.writeInt(index);
+    }
+  }
+
+  private void writeLongColumn(List<String> values) throws IOException {
+    final List<String> presentValues = new ArrayList<>(values.size());
+    for (String value : values) {
+      presentValues.add(value == null || value.isEmpty() ? null : value);
+    }
+    writePresenceBitmap(presentValues);
+    for (String value : presentValues) {
+      if (value != null) {
+        output.writeLong(Long.parseLong(value.trim()));
+      }
+    }
+  }
+
+  private static boolean isLong(String value) {
+    if (value == null || value.isEmpty()) {
+      return true;
+    }
+    try {
+      Long.parseLong(value.trim());
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private void writePresenceBitmap(List<String> values) throws IOException {
+    final byte[] bitmap = new byte[(values.size() + 7) / 8];
+    for (int i = 0; i < values.size(); i++) {
+      if (values.get(i) != null) {
+        bitmap[i / 8] |= 1 << (i % 8);
+      }
+    }
+    output.write(bitmap);
+  }
+
+  static void writeString(DataOutputStream output, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (bufferedRows > 0) {
+        writeRowGroup();
+      }
+      output.writeInt(0);
+    } finally {
+      output.close();
+    }
+  }
+}
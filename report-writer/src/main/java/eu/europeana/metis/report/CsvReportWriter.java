@@ -0,0 +1,37 @@
+package eu.europeana.metis.report;
+
+import com.opencsv.CSVWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes a report as CSV. The first line contains the column names.
+ */
+public class CsvReportWriter implements ReportWriter {
+
+  private final CSVWriter csvWriter;
+
+  public CsvReportWriter(OutputStream outputStream, List<ReportColumn> columns) {
+    this.csvWriter = new CSVWriter(
+        new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)),
+        CSVWriter.DEFAULT_SEPARATOR,
+        CSVWriter.DEFAULT_QUOTE_CHARACTER,
+        CSVWriter.DEFAULT_ESCAPE_CHARACTER,
+        CSVWriter.DEFAULT_LINE_END);
+    csvWriter.writeNext(columns.stream().map(ReportColumn::getName).toArray(String[]::new));
+  }
+
+  @Override
+  public void writeRow(String[] row) {
+    csvWriter.writeNext(row);
+  }
+
+  @Override
+  public void close() throws IOException {
+    csvWriter.close();
+  }
+}
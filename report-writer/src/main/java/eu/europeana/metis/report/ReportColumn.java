@@ -0,0 +1,45 @@
+package eu.europeana.metis.report;
+
+/**
+ * A column of a report: its name (used as header) and the type with which it is stored.
+ */
+public class ReportColumn {
+
+  /**
+   * The type of the values in a column.
+   */
+  public enum Type {
+
+    /**
+     * Free text, stored as is.
+     */
+    STRING,
+
+    /**
+     * Text with few distinct values (like a status or a country), stored as a reference into a
+     * dictionary of the distinct values.
+     */
+    DICTIONARY,
+
+    /**
+     * A whole number (like a record count). Empty values are stored as absent.
+     */
+    LONG
+  }
+
+  private final String name;
+  private final Type type;
+
+  public ReportColumn(String name, Type type) {
+    this.name = name;
+    this.type = type;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Type getType() {
+    return type;
+  }
+}
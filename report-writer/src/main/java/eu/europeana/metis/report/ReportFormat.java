@@ -0,0 +1,55 @@
+package eu.europeana.metis.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * The formats in which a report can be written.
+ */
+public enum ReportFormat {
+
+  /**
+   * Comma-separated values, with the column names as header.
+   */
+  CSV(".csv"),
+
+  /**
+   * A compact binary format that stores the values per column (see {@link
+   * ColumnarReportWriter}).
+   */
+  COLUMNAR(".col");
+
+  private final String extension;
+
+  ReportFormat(String extension) {
+    this.extension = extension;
+  }
+
+  /**
+   * @return the file extension (including the dot) of files in this format.
+   */
+  public String getExtension() {
+    return extension;
+  }
+
+  /**
+   * Creates a writer in this format. Closing the writer closes the output stream.
+   *
+   * @param outputStream the stream to write to.
+   * @param columns the columns of the report.
+   * @return the writer.
+   * @throws IOException in case the writer could not be created.
+   */
+  public ReportWriter createWriter(OutputStream outputStream, List<ReportColumn> columns)
+      throws IOException {
+    switch (this) {
+      case CSV:
+        return new CsvReportWriter(outputStream, columns);
+      case COLUMNAR:
+        return new ColumnarReportWriter(outputStream, columns);
+      default:
+        throw new IllegalStateException("Unsupported format: " + this);
+    }
+  }
+}
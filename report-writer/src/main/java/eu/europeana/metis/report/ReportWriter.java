@@ -0,0 +1,19 @@
+package eu.europeana.metis.report;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the rows of a report. The columns are fixed when the writer is created.
+ */
+public interface ReportWriter extends Closeable {
+
+  /**
+   * Writes a row. The values are in the order of the columns. If the row has fewer values than
+   * there are columns, the remaining values are empty.
+   *
+   * @param row the values of the row.
+   * @throws IOException in case the row could not be written.
+   */
+  void writeRow(String[] row) throws IOException;
+}
@@ -0,0 +1,121 @@
+package eu.europeana.metis.report;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import eu.europeana.metis.report.ReportColumn.Type;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ColumnarReportWriterTest {
+
+  private static final List<ReportColumn> COLUMNS = Arrays.asList(
+      new ReportColumn("ID", Type.STRING),
+      new ReportColumn("Status", Type.DICTIONARY),
+      new ReportColumn("Records", Type.LONG));
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final List<String[]> rows = Arrays.asList(
+        new String[]{"1", "SUCCESS", "100"},
+        new String[]{"2", "FAILED", ""},
+        new String[]{"3 with ünïcödé", "SUCCESS", " -5 "},
+        new String[]{null, null, null},
+        new String[]{"5"},
+        new String[]{"", "", String.valueOf(Long.MAX_VALUE)});
+    final List<String[]> expectedRows = Arrays.asList(
+        new String[]{"1", "SUCCESS", "100"},
+        new String[]{"2", "FAILED", null},
+        new String[]{"3 with ünïcödé", "SUCCESS", "-5"},
+        new String[]{null, null, null},
+        new String[]{"5", null, null},
+        new String[]{"", "", String.valueOf(Long.MAX_VALUE)});
+
+    try (ColumnarReportReader reader = new ColumnarReportReader(
+        new ByteArrayInputStream(write(rows)))) {
+      assertEquals(COLUMNS.size(), reader.getColumns().size());
+      for (int i = 0; i < COLUMNS.size(); i++) {
+        assertEquals(COLUMNS.get(i).getName(), reader.getColumns().get(i).getName());
+        assertEquals(COLUMNS.get(i).getType(), reader.getColumns().get(i).getType());
+      }
+      final List<String[]> readRows = reader.readAll();
+      assertEquals(expectedRows.size(), readRows.size());
+      for (int i = 0; i < expectedRows.size(); i++) {
+        assertArrayEquals(expectedRows.get(i), readRows.get(i));
+      }
+      assertNull(reader.readRowGroup());
+    }
+  }
+
+  @Test
+  public void testRoundTripOverMultipleRowGroups() throws IOException {
+
+    // The dictionary grows over the row groups: later groups refer to earlier entries.
+    final List<String[]> rows = new ArrayList<>();
+    for (int i = 0; i < 25_000; i++) {
+      rows.add(new String[]{"id" + i, "status" + (i % 7 == 0 ? i : i % 3), Integer.toString(i)});
+    }
+    try (ColumnarReportReader reader = new ColumnarReportReader(
+        new ByteArrayInputStream(write(rows)))) {
+      final List<String[]> readRows = reader.readAll();
+      assertEquals(rows.size(), readRows.size());
+      for (int i = 0; i < rows.size(); i++) {
+        assertArrayEquals(rows.get(i), readRows.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyReport() throws IOException {
+    try (ColumnarReportReader reader = new ColumnarReportReader(
+        new ByteArrayInputStream(write(new ArrayList<>())))) {
+      assertEquals(0, reader.readAll().size());
+    }
+  }
+
+  @Test
+  public void testNonNumericLongValueIsRefused() throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ColumnarReportWriter writer = new ColumnarReportWriter(output, COLUMNS)) {
+      writer.writeRow(new String[]{"1", "SUCCESS", "100"});
+      try {
+        writer.writeRow(new String[]{"2", "SUCCESS", "many"});
+        fail("Expected an exception.");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Value 'many' of column 'Records' is not a whole number.", e.getMessage());
+      }
+      writer.writeRow(new String[]{"3", "FAILED", "7"});
+    }
+
+    // The refused row is not written, the others are.
+    try (ColumnarReportReader reader = new ColumnarReportReader(
+        new ByteArrayInputStream(output.toByteArray()))) {
+      final List<String[]> readRows = reader.readAll();
+      assertEquals(2, readRows.size());
+      assertArrayEquals(new String[]{"1", "SUCCESS", "100"}, readRows.get(0));
+      assertArrayEquals(new String[]{"3", "FAILED", "7"}, readRows.get(1));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadOtherFile() throws IOException {
+    new ColumnarReportReader(new ByteArrayInputStream("ID,Status\n".getBytes("UTF-8")));
+  }
+
+  private static byte[] write(List<String[]> rows) throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ReportWriter writer = ReportFormat.COLUMNAR.createWriter(output, COLUMNS)) {
+      for (String[] row : rows) {
+        writer.writeRow(row);
+      }
+    }
+    return output.toByteArray();
+  }
+}
@@ -1,7 +1,6 @@
 package eu.europeana.metis.tools.dataset.migration;
 
 import eu.europeana.metis.core.dao.DatasetDao;
-import eu.europeana.metis.core.dao.WorkflowDao;
 import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
 import eu.europeana.metis.tools.dataset.migration.utilities.ExecutorManager;
 import eu.europeana.metis.tools.dataset.migration.utilities.MongoInitializer;
@@ -36,13 +35,11 @@ public class DatasetsMigrationMain {
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Initialize mongo connection");
     MongoInitializer mongoInitializer = new MongoInitializer(propertiesHolder);
     mongoInitializer.initializeMongoClient();
-    DatasetDao datasetDao = new DatasetDao(
-        new MorphiaDatastoreProvider(mongoInitializer.getMongoClient(), propertiesHolder.mongoDb),
-        null);
-    WorkflowDao workflowDao = new WorkflowDao(
-        new MorphiaDatastoreProvider(mongoInitializer.getMongoClient(), propertiesHolder.mongoDb));
-    ExecutorManager executorManager = new ExecutorManager(propertiesHolder, datasetDao,
-        workflowDao);
+    MorphiaDatastoreProvider morphiaDatastoreProvider = new MorphiaDatastoreProvider(
+        mongoInitializer.getMongoClient(), propertiesHolder.mongoDb);
+    DatasetDao datasetDao = new DatasetDao(morphiaDatastoreProvider, null);
+    ExecutorManager executorManager = new ExecutorManager(propertiesHolder,
+        morphiaDatastoreProvider, datasetDao);
 
     switch (propertiesHolder.mode) {
       case CREATE:
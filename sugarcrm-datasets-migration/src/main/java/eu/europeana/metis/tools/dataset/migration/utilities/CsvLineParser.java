@@ -0,0 +1,124 @@
+package eu.europeana.metis.tools.dataset.migration.utilities;
+
+import eu.europeana.metis.core.common.Country;
+import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.workflow.Workflow;
+import eu.europeana.metis.core.workflow.plugins.AbstractMetisPluginMetadata;
+import eu.europeana.metis.core.workflow.plugins.HTTPHarvestPluginMetadata;
+import eu.europeana.metis.core.workflow.plugins.OaipmhHarvestPluginMetadata;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts csv lines to a {@link Dataset} and a {@link Workflow}. The pattern and the date format
+ * are created once and reused for all lines, so an instance should only be used by one thread.
+ */
+public class CsvLineParser {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CsvLineParser.class);
+
+  //Only get the first numeric part of the Columns.NAME field
+  private static final Pattern DATASET_NAME_PATTERN = Pattern
+      .compile("^(\\d+[a-zA-Z]*\\d?)_(.*)|^(\\d+[a-zA-Z]*\\d?)$");
+
+  private final PropertiesHolder propertiesHolder;
+  private final SimpleDateFormat dateFormat = new SimpleDateFormat(
+      PropertiesHolder.SUGARCRM_DATE_FORMAT);
+
+  public CsvLineParser(PropertiesHolder propertiesHolder) {
+    this.propertiesHolder = propertiesHolder;
+  }
+
+  /**
+   * Converts a csv line. If a date in the line cannot be parsed, the line is logged and the result
+   * contains no dataset.
+   *
+   * @param lineNumber the number of the line in the csv file
+   * @param line the columns of the line
+   * @return the parsed line
+   */
+  public ParsedCsvLine parse(int lineNumber, String[] line) {
+    try {
+      return new ParsedCsvLine(lineNumber, extractDatasetColumnsFromArray(line),
+          extractWorkflowColumnsFromArray(line));
+    } catch (ParseException e) {
+      LOGGER.warn(PropertiesHolder.FAILED_CSV_LINES_MARKER, Arrays.toString(line));
+      return new ParsedCsvLine(lineNumber, null, null);
+    }
+  }
+
+  private Dataset extractDatasetColumnsFromArray(String[] line) throws ParseException {
+    Dataset dataset = new Dataset();
+    dataset.setEcloudDatasetId(String.format("NOT_CREATED_YET-%s", UUID.randomUUID().toString()));
+    Matcher matcher = DATASET_NAME_PATTERN.matcher(line[Columns.NAME.getIndex()].trim());
+    if (matcher.find()) {
+      String datasetId = matcher.group(1) != null ? matcher.group(1) : matcher.group(3);
+      dataset.setDatasetId(datasetId);
+      //Use the parsed datasetName or datasetId if there was not name
+      dataset.setDatasetName(matcher.group(2) != null ? matcher.group(2) : datasetId);
+      if (datasetId.charAt(0) == '0') {
+        LOGGER.info(PropertiesHolder.LEADING_ZEROS_DATASET_IDS_MARKER, datasetId);
+      }
+    } else {
+      return null;
+    }
+    dataset.setOrganizationId(propertiesHolder.organizationId);
+    dataset.setOrganizationName(propertiesHolder.organizationName);
+    dataset.setProvider(line[Columns.ORGANIZATION_NAME.getIndex()].trim());
+    dataset.setCreatedByUserId(propertiesHolder.userId);
+    dataset.setCreatedDate(dateFormat.parse(line[Columns.DATE_CREATED.getIndex()].trim()));
+    dataset.setCountry(
+        Country.getCountryFromIsoCode(line[Columns.DATASET_COUNTRY_CODE.getIndex()].trim()));
+    dataset.setDescription(line[Columns.DESCRIPTION.getIndex()]);
+    dataset.setNotes(line[Columns.NOTES.getIndex()]);
+    return dataset;
+  }
+
+  private Workflow extractWorkflowColumnsFromArray(String[] line) {
+    List<AbstractMetisPluginMetadata> abstractMetisPluginMetadata = new ArrayList<>(1);
+    if (line[Columns.HARVEST_TYPE.getIndex()].trim().equals("oai_pmh")) {
+      OaipmhHarvestPluginMetadata oaipmhHarvestPluginMetadata = new OaipmhHarvestPluginMetadata();
+      oaipmhHarvestPluginMetadata.setUrl(
+          isValid(line[Columns.HARVEST_URL.getIndex()]) ? line[Columns.HARVEST_URL.getIndex()]
+              .trim() : null);
+      oaipmhHarvestPluginMetadata
+          .setMetadataFormat(line[Columns.METADATA_FORMAT.getIndex()].trim());
+      oaipmhHarvestPluginMetadata
+          .setSetSpec(line[Columns.SETSPEC.getIndex()].trim().equals("-") ? null
+              : line[Columns.SETSPEC.getIndex()].trim());
+      oaipmhHarvestPluginMetadata.setMocked(false);
+      oaipmhHarvestPluginMetadata.setEnabled(true);
+      abstractMetisPluginMetadata.add(oaipmhHarvestPluginMetadata);
+    } else { //Http type of any other, and create an http plugin with or without a valid url
+      HTTPHarvestPluginMetadata httpHarvestPluginMetadata = new HTTPHarvestPluginMetadata();
+      httpHarvestPluginMetadata.setUrl(
+          isValid(line[Columns.HTTP_URL.getIndex()]) ? line[Columns.HTTP_URL.getIndex()].trim()
+              : null);
+      httpHarvestPluginMetadata.setMocked(false);
+      httpHarvestPluginMetadata.setEnabled(true);
+      abstractMetisPluginMetadata.add(httpHarvestPluginMetadata);
+    }
+
+    Workflow workflow = new Workflow();
+    workflow.setMetisPluginsMetadata(abstractMetisPluginMetadata);
+    return abstractMetisPluginMetadata.isEmpty() ? null : workflow;
+  }
+
+  private static boolean isValid(String url) {
+    try {
+      new URL(url).toURI();
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package eu.europeana.metis.tools.dataset.migration.utilities;
+
+import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of the dataset names that are taken within an organization, so that unique names
+ * can be assigned before a dataset is stored instead of after a failed insert. A name that is
+ * taken gets a number appended, the same way as when the duplicate key is only detected on insert
+ * (e.g. name, name1, name12). The registry is loaded once with all names of the organization in
+ * the database and is updated with every name that is handed out.
+ */
+public class DatasetNameRegistry {
+
+  private static final String ORGANIZATION_ID_FIELD = "organizationId";
+  private static final String DATASET_NAME_FIELD = "datasetName";
+
+  private final Set<String> takenNames;
+
+  private DatasetNameRegistry(Set<String> takenNames) {
+    this.takenNames = takenNames;
+  }
+
+  /**
+   * Creates a registry containing the names of all datasets of the organization.
+   *
+   * @param morphiaDatastoreProvider the datastore provider
+   * @param organizationId the organization of the datasets
+   * @return the registry
+   */
+  public static DatasetNameRegistry load(MorphiaDatastoreProvider morphiaDatastoreProvider,
+      String organizationId) {
+    return new DatasetNameRegistry(morphiaDatastoreProvider.getDatastore()
+        .createQuery(Dataset.class).project(DATASET_NAME_FIELD, true).field(ORGANIZATION_ID_FIELD)
+        .equal(organizationId).asList().stream().map(Dataset::getDatasetName)
+        .collect(Collectors.toCollection(HashSet::new)));
+  }
+
+  /**
+   * Returns a name that is not taken yet, and marks it as taken. If the given name is taken
+   * (including when it was handed out before by this method), a number is appended.
+   *
+   * @param datasetName the preferred name
+   * @return the given name, or the given name with a number appended
+   */
+  public synchronized String reserveUniqueName(String datasetName) {
+    String candidate = datasetName;
+    int datasetSuffixNumber = 0;
+    while (!takenNames.add(candidate)) {
+      datasetSuffixNumber++;
+      candidate = candidate + datasetSuffixNumber;
+    }
+    return candidate;
+  }
+
+  public synchronized int size() {
+    return takenNames.size();
+  }
+}
@@ -1,34 +1,46 @@
 package eu.europeana.metis.tools.dataset.migration.utilities;
 
 import com.mongodb.DuplicateKeyException;
+import com.mongodb.MongoException;
 import com.opencsv.CSVReader;
-import eu.europeana.metis.core.common.Country;
 import eu.europeana.metis.core.dao.DatasetDao;
-import eu.europeana.metis.core.dao.WorkflowDao;
 import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.mongo.MorphiaDatastoreProvider;
 import eu.europeana.metis.core.workflow.Workflow;
-import eu.europeana.metis.core.workflow.plugins.AbstractMetisPluginMetadata;
-import eu.europeana.metis.core.workflow.plugins.HTTPHarvestPluginMetadata;
-import eu.europeana.metis.core.workflow.plugins.OaipmhHarvestPluginMetadata;
 import java.io.FileReader;
 import java.io.IOException;
-import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.types.ObjectId;
+import org.mongodb.morphia.AdvancedDatastore;
+import org.mongodb.morphia.Datastore;
+import org.mongodb.morphia.InsertOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Handles execution of the modes and has methods to convert csv lines to {@link Dataset}
+ * Handles execution of the modes. In create mode the csv file is imported as a pipeline: one
+ * thread converts the csv lines to {@link Dataset}s (see {@link CsvLineParser}) in chunks, while
+ * for every chunk the existing datasets are found with a single query and the new datasets and
+ * workflows are stored with bulk inserts. The throughput of every stage is reported at the end.
+ * In delete mode the dataset ids are split in chunks that are deleted concurrently, with one
+ * delete per collection for every chunk.
  *
  * @author Simon Tzanakis (Simon.Tzanakis@europeana.eu)
  * @since 2018-03-14
@@ -37,33 +49,55 @@ public class ExecutorManager {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorManager.class);
 
+  private static final String DATASET_ID_FIELD = "datasetId";
+  private static final int CHUNKS_READ_AHEAD = 2;
+  private static final List<ParsedCsvLine> END_OF_CHUNKS = new ArrayList<>();
+
   private final PropertiesHolder propertiesHolder;
+  private final MorphiaDatastoreProvider morphiaDatastoreProvider;
   private final DatasetDao datasetDao;
-  private final WorkflowDao workflowDao;
+  private DatasetNameRegistry datasetNameRegistry;
   private int readCounter = 0;
   private int storedCounter = 0;
   private int failedCounter = 0;
-  private int deletedCounter = 0;
+  private final AtomicInteger processedDatasetIdsCounter = new AtomicInteger();
+  private final AtomicInteger deletedCounter = new AtomicInteger();
+  private final AtomicInteger deletedWorkflowsCounter = new AtomicInteger();
+
+  private final StageStatistics parseStatistics = new StageStatistics("parse");
+  private final StageStatistics existenceCheckStatistics = new StageStatistics("existence check");
+  private final StageStatistics datasetInsertStatistics = new StageStatistics("dataset insert");
+  private final StageStatistics workflowInsertStatistics = new StageStatistics("workflow insert");
 
-  public ExecutorManager(PropertiesHolder propertiesHolder, DatasetDao datasetDao,
-      WorkflowDao workflowDao) {
+  public ExecutorManager(PropertiesHolder propertiesHolder,
+      MorphiaDatastoreProvider morphiaDatastoreProvider, DatasetDao datasetDao) {
     this.propertiesHolder = propertiesHolder;
+    this.morphiaDatastoreProvider = morphiaDatastoreProvider;
     this.datasetDao = datasetDao;
-    this.workflowDao = workflowDao;
   }
 
   public void createMode() {
+    datasetNameRegistry = DatasetNameRegistry
+        .load(morphiaDatastoreProvider, propertiesHolder.organizationId);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+        "Loaded {} existing dataset names of the organization", datasetNameRegistry.size());
     LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Start reading the csv file");
-    try (CSVReader reader = new CSVReader(new FileReader(propertiesHolder.datasetsCsvPath))) {
-      String[] line;
-      reader.readNext();//Bypass titles line
-      readCounter++;
-      while ((line = reader.readNext()) != null) {
-        readCounter++;
-        convertLineToDataset(line);
+
+    // The csv file is parsed in a separate thread while the previous chunk is being stored.
+    final BlockingQueue<List<ParsedCsvLine>> chunks = new ArrayBlockingQueue<>(CHUNKS_READ_AHEAD);
+    final Thread parseThread = new Thread(() -> parseCsvFile(chunks), "csv-parser");
+    parseThread.setDaemon(true);
+    parseThread.start();
+    try {
+      List<ParsedCsvLine> chunk;
+      while ((chunk = chunks.take()) != END_OF_CHUNKS) {
+        storeChunk(chunk);
       }
-    } catch (IOException e) {
-      LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Reading csv file failed ", e);
+      parseThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      parseThread.interrupt();
+      LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Import was interrupted ", e);
     }
 
     LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER,
@@ -72,145 +106,288 @@ public class ExecutorManager {
         .error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Total datasets stored: {} ", storedCounter);
     LOGGER
         .error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Total datasets failed: {} ", failedCounter);
+    parseStatistics.log();
+    existenceCheckStatistics.log();
+    datasetInsertStatistics.log();
+    workflowInsertStatistics.log();
   }
 
-  public void deleteMode() {
-    try (Stream<String> stream = Files.lines(Paths.get(propertiesHolder.datasetIdsPath))) {
-      stream.forEach(datasetId -> {
-        deletedCounter++;
-        datasetDao.deleteByDatasetId(datasetId);
-        workflowDao.deleteWorkflow(datasetId);
-        LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Counter: {}, datasetId: {}",
-            deletedCounter, datasetId);
-      });
+  private void parseCsvFile(BlockingQueue<List<ParsedCsvLine>> chunks) {
+    final CsvLineParser csvLineParser = new CsvLineParser(propertiesHolder);
+    try (CSVReader reader = new CSVReader(new FileReader(propertiesHolder.datasetsCsvPath))) {
+      String[] line;
+      reader.readNext();//Bypass titles line
+      readCounter++;
+      List<ParsedCsvLine> chunk = new ArrayList<>(propertiesHolder.importBatchSize);
+      long start = System.nanoTime();
+      while ((line = reader.readNext()) != null) {
+        readCounter++;
+        chunk.add(csvLineParser.parse(readCounter, line));
+        if (chunk.size() == propertiesHolder.importBatchSize) {
+          parseStatistics.record(chunk.size(), start);
+          chunks.put(chunk);
+          chunk = new ArrayList<>(propertiesHolder.importBatchSize);
+          start = System.nanoTime();
+        }
+      }
+      parseStatistics.record(chunk.size(), start);
+      if (!chunk.isEmpty()) {
+        chunks.put(chunk);
+      }
     } catch (IOException e) {
-      LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Reading dataset ids file failed ", e);
+      LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Reading csv file failed ", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch (RuntimeException e) {
+      LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Parsing csv file failed ", e);
+    }
+    try {
+      chunks.put(END_OF_CHUNKS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
-    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Total datasets deleted: {} ",
-        deletedCounter);
   }
 
-  private void convertLineToDataset(String[] line) {
-    try {
-      Dataset dataset = extractDatasetColumnsFromArray(line);
-      Workflow workflow = extractWorkflowColumnsFromArray(line);
-      Dataset storedDataset = null;
-      String datasetIdString = null;
-      if (dataset != null) {
-        storedDataset = datasetDao.getDatasetByDatasetId(dataset.getDatasetId());
-        datasetIdString = dataset.getDatasetId();
-      }
+  private void storeChunk(List<ParsedCsvLine> chunk) {
 
-      if (dataset != null && storedDataset == null && workflow != null) {
-        workflow.setDatasetId(dataset.getDatasetId());
-        boolean duplicateProblem;
-        int datasetSuffixNumber = 0;
-        do {
-          try {
-            datasetDao.create(dataset);
-            duplicateProblem = false;
-            //If the datasetName was the same we have to add a number at the end.
-          } catch (DuplicateKeyException e) {
-            if (e.getMessage().contains("organizationId_1_datasetName_1 dup")) {
-              datasetSuffixNumber++;
-              LOGGER.warn("Duplicate key problem, trying to add number {}", datasetSuffixNumber, e);
-              dataset.setDatasetName(dataset.getDatasetName() + datasetSuffixNumber);
-              duplicateProblem = true;
-            } else {
-              throw e;
-            }
-          }
-        } while (duplicateProblem);
-        workflowDao.create(workflow);
-        storedCounter++;
-        LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
-            "Line: {}, Dataset with datasetId: {}, created", readCounter, datasetIdString);
-        LOGGER.info(PropertiesHolder.SUCCESSFULL_DATASET_IDS, datasetIdString);
-      } else if (storedDataset != null) {
+    // Find the datasets that already exist, using one query for the whole chunk.
+    long start = System.nanoTime();
+    final Set<String> existingDatasetIds = findExistingDatasetIds(
+        chunk.stream().map(ParsedCsvLine::getDataset).filter(Objects::nonNull)
+            .map(Dataset::getDatasetId).collect(Collectors.toSet()));
+    existenceCheckStatistics.record(chunk.size(), start);
+
+    final List<ParsedCsvLine> linesToCreate = new ArrayList<>(chunk.size());
+    for (ParsedCsvLine parsedCsvLine : chunk) {
+      final Dataset dataset = parsedCsvLine.getDataset();
+      final Workflow workflow = parsedCsvLine.getWorkflow();
+      if (dataset != null && existingDatasetIds.contains(dataset.getDatasetId())) {
         LOGGER.warn(PropertiesHolder.FAILED_CSV_LINES_DATASET_ALREADY_EXISTS_MARKER,
-            "Line: {}, Dataset with datasetId: {}, already exists", readCounter,
-            datasetIdString);
+            "Line: {}, Dataset with datasetId: {}, already exists", parsedCsvLine.getLineNumber(),
+            dataset.getDatasetId());
+      } else if (dataset != null && workflow != null) {
+        workflow.setDatasetId(dataset.getDatasetId());
+        //If the datasetName is taken we have to add a number at the end.
+        dataset.setDatasetName(datasetNameRegistry.reserveUniqueName(dataset.getDatasetName()));
+        linesToCreate.add(parsedCsvLine);
+        //A dataset id occurring again later in the file is treated as already existing.
+        existingDatasetIds.add(dataset.getDatasetId());
       } else {
         LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
-            "Line: {}, Failed to read dataset from csv line",
-            readCounter);
+            "Line: {}, Failed to read dataset from csv line", parsedCsvLine.getLineNumber());
         failedCounter++;
       }
-    } catch (ParseException e) {
-      LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
-          "Line: {}, Failed to read dataset from csv line.", readCounter);
-      LOGGER.warn(PropertiesHolder.FAILED_CSV_LINES_MARKER, Arrays.toString(line));
-      failedCounter++;
+    }
+    if (linesToCreate.isEmpty()) {
+      return;
+    }
+
+    // Store the datasets and the workflows, each with one bulk insert. Only the workflows of the
+    // datasets that were actually stored are inserted.
+    start = System.nanoTime();
+    final List<ParsedCsvLine> linesWithDataset = createDatasets(linesToCreate);
+    datasetInsertStatistics.record(linesToCreate.size(), start);
+    if (linesWithDataset.isEmpty()) {
+      return;
+    }
+    start = System.nanoTime();
+    final List<ParsedCsvLine> storedLines = createWorkflows(linesWithDataset);
+    workflowInsertStatistics.record(linesWithDataset.size(), start);
+
+    for (ParsedCsvLine parsedCsvLine : storedLines) {
+      storedCounter++;
+      LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+          "Line: {}, Dataset with datasetId: {}, created", parsedCsvLine.getLineNumber(),
+          parsedCsvLine.getDataset().getDatasetId());
+      LOGGER.info(PropertiesHolder.SUCCESSFULL_DATASET_IDS,
+          parsedCsvLine.getDataset().getDatasetId());
     }
   }
 
-  private Dataset extractDatasetColumnsFromArray(String[] line) throws ParseException {
-    Dataset dataset = new Dataset();
-    dataset.setEcloudDatasetId(String.format("NOT_CREATED_YET-%s", UUID.randomUUID().toString()));
-    //Only get the first numeric part of the Columns.NAME field
-    Pattern pattern = Pattern.compile("^(\\d+[a-zA-Z]*\\d?)_(.*)|^(\\d+[a-zA-Z]*\\d?)$");
-    Matcher matcher = pattern.matcher(line[Columns.NAME.getIndex()].trim());
-    if (matcher.find()) {
-      String datasetId = matcher.group(1) != null ? matcher.group(1) : matcher.group(3);
-      dataset.setDatasetId(datasetId);
-      //Use the parsed datasetName or datasetId if there was not name
-      dataset.setDatasetName(matcher.group(2) != null ? matcher.group(2) : datasetId);
-      if (datasetId.charAt(0) == '0') {
-        LOGGER.info(PropertiesHolder.LEADING_ZEROS_DATASET_IDS_MARKER, datasetId);
+  private Set<String> findExistingDatasetIds(Set<String> datasetIds) {
+    if (datasetIds.isEmpty()) {
+      return new HashSet<>();
+    }
+    return morphiaDatastoreProvider.getDatastore().createQuery(Dataset.class)
+        .project(DATASET_ID_FIELD, true).field(DATASET_ID_FIELD).in(datasetIds).asList().stream()
+        .map(Dataset::getDatasetId).collect(Collectors.toCollection(HashSet::new));
+  }
+
+  // Returns the lines of which the dataset was stored by this import.
+  private List<ParsedCsvLine> createDatasets(List<ParsedCsvLine> lines) {
+    lines.forEach(parsedCsvLine -> parsedCsvLine.getDataset().setId(new ObjectId()));
+    try {
+      getAdvancedDatastore().insert(lines.stream().map(ParsedCsvLine::getDataset)
+          .collect(Collectors.toList()), new InsertOptions());
+      return lines;
+    } catch (MongoException e) {
+      //A dataset name taken by another writer: store the datasets that were not inserted one by one.
+      LOGGER.warn("Bulk insert of datasets failed, storing them one by one", e);
+    }
+    final List<ParsedCsvLine> storedLines = new ArrayList<>(lines.size());
+    for (ParsedCsvLine parsedCsvLine : lines) {
+      final Dataset dataset = parsedCsvLine.getDataset();
+      try {
+        final Dataset existingDataset = datasetDao.getDatasetByDatasetId(dataset.getDatasetId());
+        if (existingDataset == null) {
+          createDataset(dataset);
+          storedLines.add(parsedCsvLine);
+        } else if (isSameDocument(existingDataset.getId(), dataset.getId())) {
+          //Inserted by the bulk insert before it failed.
+          storedLines.add(parsedCsvLine);
+        } else {
+          LOGGER.warn(PropertiesHolder.FAILED_CSV_LINES_DATASET_ALREADY_EXISTS_MARKER,
+              "Line: {}, Dataset with datasetId: {}, already exists",
+              parsedCsvLine.getLineNumber(), dataset.getDatasetId());
+        }
+      } catch (MongoException e) {
+        LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
+            "Line: {}, Failed to store dataset with datasetId: {}", parsedCsvLine.getLineNumber(),
+            dataset.getDatasetId(), e);
+        failedCounter++;
       }
-    } else {
-      return null;
     }
-    dataset.setOrganizationId(propertiesHolder.organizationId);
-    dataset.setOrganizationName(propertiesHolder.organizationName);
-    dataset.setProvider(line[Columns.ORGANIZATION_NAME.getIndex()].trim());
-    dataset.setCreatedByUserId(propertiesHolder.userId);
-    SimpleDateFormat dateFormat = new SimpleDateFormat(PropertiesHolder.SUGARCRM_DATE_FORMAT);
-    dataset.setCreatedDate(dateFormat.parse(line[Columns.DATE_CREATED.getIndex()].trim()));
-    dataset.setCountry(
-        Country.getCountryFromIsoCode(line[Columns.DATASET_COUNTRY_CODE.getIndex()].trim()));
-    dataset.setDescription(line[Columns.DESCRIPTION.getIndex()]);
-    dataset.setNotes(line[Columns.NOTES.getIndex()]);
-    return dataset;
+    return storedLines;
   }
 
-  private Workflow extractWorkflowColumnsFromArray(String[] line) {
-    List<AbstractMetisPluginMetadata> abstractMetisPluginMetadata = new ArrayList<>(1);
-    if (line[Columns.HARVEST_TYPE.getIndex()].trim().equals("oai_pmh")) {
-      OaipmhHarvestPluginMetadata oaipmhHarvestPluginMetadata = new OaipmhHarvestPluginMetadata();
-      oaipmhHarvestPluginMetadata.setUrl(
-          isValid(line[Columns.HARVEST_URL.getIndex()]) ? line[Columns.HARVEST_URL.getIndex()]
-              .trim() : null);
-      oaipmhHarvestPluginMetadata
-          .setMetadataFormat(line[Columns.METADATA_FORMAT.getIndex()].trim());
-      oaipmhHarvestPluginMetadata
-          .setSetSpec(line[Columns.SETSPEC.getIndex()].trim().equals("-") ? null
-              : line[Columns.SETSPEC.getIndex()].trim());
-      oaipmhHarvestPluginMetadata.setMocked(false);
-      oaipmhHarvestPluginMetadata.setEnabled(true);
-      abstractMetisPluginMetadata.add(oaipmhHarvestPluginMetadata);
-    } else { //Http type of any other, and create an http plugin with or without a valid url
-      HTTPHarvestPluginMetadata httpHarvestPluginMetadata = new HTTPHarvestPluginMetadata();
-      httpHarvestPluginMetadata.setUrl(
-          isValid(line[Columns.HTTP_URL.getIndex()]) ? line[Columns.HTTP_URL.getIndex()].trim()
-              : null);
-      httpHarvestPluginMetadata.setMocked(false);
-      httpHarvestPluginMetadata.setEnabled(true);
-      abstractMetisPluginMetadata.add(httpHarvestPluginMetadata);
+  // Returns the lines of which the workflow was stored by this import.
+  private List<ParsedCsvLine> createWorkflows(List<ParsedCsvLine> lines) {
+    lines.forEach(parsedCsvLine -> parsedCsvLine.getWorkflow().setId(new ObjectId()));
+    try {
+      getAdvancedDatastore().insert(lines.stream().map(ParsedCsvLine::getWorkflow)
+          .collect(Collectors.toList()), new InsertOptions());
+      return lines;
+    } catch (MongoException e) {
+      LOGGER.warn("Bulk insert of workflows failed, storing them one by one", e);
+    }
+    final List<ParsedCsvLine> storedLines = new ArrayList<>(lines.size());
+    for (ParsedCsvLine parsedCsvLine : lines) {
+      final Workflow workflow = parsedCsvLine.getWorkflow();
+      try {
+        final Workflow existingWorkflow = morphiaDatastoreProvider.getDatastore()
+            .createQuery(Workflow.class).field(DATASET_ID_FIELD).equal(workflow.getDatasetId())
+            .get();
+        if (existingWorkflow == null) {
+          getAdvancedDatastore()
+              .insert(Collections.singletonList(workflow), new InsertOptions());
+          storedLines.add(parsedCsvLine);
+        } else if (isSameDocument(existingWorkflow.getId(), workflow.getId())) {
+          //Inserted by the bulk insert before it failed.
+          storedLines.add(parsedCsvLine);
+        } else {
+          LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
+              "Line: {}, Dataset with datasetId: {}, created, but a workflow already exists",
+              parsedCsvLine.getLineNumber(), workflow.getDatasetId());
+          failedCounter++;
+        }
+      } catch (MongoException e) {
+        LOGGER.warn(PropertiesHolder.EXECUTION_LOGS_MARKER,
+            "Line: {}, Dataset with datasetId: {}, created, but storing its workflow failed",
+            parsedCsvLine.getLineNumber(), workflow.getDatasetId(), e);
+        failedCounter++;
+      }
     }
+    return storedLines;
+  }
 
-    Workflow workflow = new Workflow();
-    workflow.setMetisPluginsMetadata(abstractMetisPluginMetadata);
-    return abstractMetisPluginMetadata.isEmpty() ? null : workflow;
+  // The ids are assigned before the bulk insert (which stops at the first failing document), so
+  // the id of the stored document tells whether it was stored by this import.
+  private static boolean isSameDocument(ObjectId storedId, ObjectId insertedId) {
+    return insertedId != null && insertedId.equals(storedId);
   }
 
-  private static boolean isValid(String url) {
+  private void createDataset(Dataset dataset) {
+    boolean duplicateProblem;
+    do {
+      try {
+        datasetDao.create(dataset);
+        duplicateProblem = false;
+        //If the datasetName was taken in the meantime we have to reserve another one.
+      } catch (DuplicateKeyException e) {
+        if (e.getMessage().contains("organizationId_1_datasetName_1 dup")) {
+          final String datasetName = datasetNameRegistry
+              .reserveUniqueName(dataset.getDatasetName());
+          LOGGER.warn("Duplicate key problem, trying name {}", datasetName, e);
+          dataset.setDatasetName(datasetName);
+          duplicateProblem = true;
+        } else {
+          throw e;
+        }
+      }
+    } while (duplicateProblem);
+  }
+
+  private AdvancedDatastore getAdvancedDatastore() {
+    return (AdvancedDatastore) morphiaDatastoreProvider.getDatastore();
+  }
+
+  public void deleteMode() {
+    final List<String> datasetIds;
+    try (Stream<String> stream = Files.lines(Paths.get(propertiesHolder.datasetIdsPath))) {
+      datasetIds = stream.filter(StringUtils::isNotBlank).map(String::trim)
+          .collect(Collectors.toList());
+    } catch (IOException e) {
+      LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Reading dataset ids file failed ", e);
+      return;
+    }
+    final List<List<String>> chunks = new ArrayList<>();
+    for (int i = 0; i < datasetIds.size(); i += propertiesHolder.deleteBatchSize) {
+      chunks.add(datasetIds.subList(i,
+          Math.min(i + propertiesHolder.deleteBatchSize, datasetIds.size())));
+    }
+
+    // The chunks are deleted concurrently, each with one delete per collection. A chunk that fails
+    // is logged and does not stop the other chunks.
+    final ExecutorService deleters = Executors
+        .newFixedThreadPool(propertiesHolder.deleteParallelism);
+    int failedChunks = 0;
     try {
-      new URL(url).toURI();
-      return true;
-    } catch (Exception e) {
-      return false;
+      final List<Future<?>> futures = new ArrayList<>(chunks.size());
+      for (int i = 0; i < chunks.size(); i++) {
+        final int chunkNumber = i + 1;
+        final List<String> chunk = chunks.get(i);
+        futures.add(deleters.submit(() -> deleteChunk(chunkNumber, chunks.size(), chunk)));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          failedChunks++;
+          LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER,
+              "Chunk {} of {} failed: {} dataset ids, first datasetId: {} ", i + 1, chunks.size(),
+              chunks.get(i).size(), chunks.get(i).get(0), e.getCause());
+        }
+      }
+      deleters.shutdown();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error(PropertiesHolder.EXECUTION_LOGS_MARKER, "Deletion was interrupted ", e);
+      deleters.shutdownNow();
     }
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Total chunks failed: {} ", failedChunks);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Total dataset ids processed: {} ",
+        processedDatasetIdsCounter.get());
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Total datasets deleted: {} ",
+        deletedCounter.get());
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER, "Total workflows deleted: {} ",
+        deletedWorkflowsCounter.get());
   }
 
+  private void deleteChunk(int chunkNumber, int totalChunks, List<String> datasetIds) {
+    final Datastore datastore = morphiaDatastoreProvider.getDatastore();
+    final int deletedDatasets = datastore
+        .delete(datastore.createQuery(Dataset.class).field(DATASET_ID_FIELD).in(datasetIds))
+        .getN();
+    final int deletedWorkflows = datastore
+        .delete(datastore.createQuery(Workflow.class).field(DATASET_ID_FIELD).in(datasetIds))
+        .getN();
+    processedDatasetIdsCounter.addAndGet(datasetIds.size());
+    deletedCounter.addAndGet(deletedDatasets);
+    deletedWorkflowsCounter.addAndGet(deletedWorkflows);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+        "Chunk {} of {}: {} dataset ids, {} datasets deleted, {} workflows deleted, first datasetId: {}",
+        chunkNumber, totalChunks, datasetIds.size(), deletedDatasets, deletedWorkflows,
+        datasetIds.get(0));
+  }
 }
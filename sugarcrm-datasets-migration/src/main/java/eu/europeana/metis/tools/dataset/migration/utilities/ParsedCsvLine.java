@@ -0,0 +1,33 @@
+package eu.europeana.metis.tools.dataset.migration.utilities;
+
+import eu.europeana.metis.core.dataset.Dataset;
+import eu.europeana.metis.core.workflow.Workflow;
+
+/**
+ * The result of parsing one line of the csv file: the {@link Dataset} and {@link Workflow} to be
+ * created, or nulls if the line could not be converted.
+ */
+public class ParsedCsvLine {
+
+  private final int lineNumber;
+  private final Dataset dataset;
+  private final Workflow workflow;
+
+  public ParsedCsvLine(int lineNumber, Dataset dataset, Workflow workflow) {
+    this.lineNumber = lineNumber;
+    this.dataset = dataset;
+    this.workflow = workflow;
+  }
+
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  public Dataset getDataset() {
+    return dataset;
+  }
+
+  public Workflow getWorkflow() {
+    return workflow;
+  }
+}
@@ -4,6 +4,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Properties;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
@@ -28,6 +29,9 @@ public class PropertiesHolder {
   public final String datasetsCsvPath;
   public final Mode mode;
   public final String datasetIdsPath;
+  public final int importBatchSize;
+  public final int deleteBatchSize;
+  public final int deleteParallelism;
 
   public final String truststorePath;
   public final String truststorePassword;
@@ -54,6 +58,18 @@ public class PropertiesHolder {
     datasetsCsvPath = properties.getProperty("datasets.csv.path");
     mode = Mode.getModeFromEnumName(properties.getProperty("mode"));
     datasetIdsPath = properties.getProperty("dataset.ids.path");
+    importBatchSize = StringUtils.isNotBlank(properties.getProperty("import.batch.size"))
+        ? Integer.parseInt(properties.getProperty("import.batch.size")) : 500;
+    if (importBatchSize <= 0) {
+      throw new IllegalArgumentException("import.batch.size must be greater than 0.");
+    }
+    deleteBatchSize = StringUtils.isNotBlank(properties.getProperty("delete.batch.size"))
+        ? Integer.parseInt(properties.getProperty("delete.batch.size")) : 500;
+    if (deleteBatchSize <= 0) {
+      throw new IllegalArgumentException("delete.batch.size must be greater than 0.");
+    }
+    deleteParallelism = StringUtils.isNotBlank(properties.getProperty("delete.parallelism"))
+        ? Integer.parseInt(properties.getProperty("delete.parallelism")) : 1;
     truststorePath = properties.getProperty("truststore.path");
     truststorePassword = properties.getProperty("truststore.password");
     mongoHosts = properties.getProperty("mongo.hosts").split(",");
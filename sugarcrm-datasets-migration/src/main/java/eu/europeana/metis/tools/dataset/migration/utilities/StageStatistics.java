@@ -0,0 +1,45 @@
+package eu.europeana.metis.tools.dataset.migration.utilities;
+
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the number of items processed by a stage of the import and the time the stage
+ * was busy with them. Comparing the throughput of the stages shows which one is the bottleneck.
+ */
+public class StageStatistics {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StageStatistics.class);
+
+  private final String stageName;
+  private long items;
+  private long busyNanos;
+
+  public StageStatistics(String stageName) {
+    this.stageName = stageName;
+  }
+
+  /**
+   * Records work done by the stage.
+   *
+   * @param processedItems the number of items processed
+   * @param startNanos the value of {@link System#nanoTime()} when the work started
+   */
+  public synchronized void record(int processedItems, long startNanos) {
+    items += processedItems;
+    busyNanos += System.nanoTime() - startNanos;
+  }
+
+  /**
+   * Logs the number of items, the busy time and the throughput of the stage.
+   */
+  public synchronized void log() {
+    final long busyMillis = TimeUnit.NANOSECONDS.toMillis(busyNanos);
+    final String throughput = busyNanos == 0 ? "-"
+        : String.format("%.1f", items * (double) TimeUnit.SECONDS.toNanos(1) / busyNanos);
+    LOGGER.info(PropertiesHolder.EXECUTION_LOGS_MARKER,
+        "Stage {}: {} items in {} ms busy time, {} items/s", stageName, items, busyMillis,
+        throughput);
+  }
+}